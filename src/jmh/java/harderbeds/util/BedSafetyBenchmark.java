@@ -0,0 +1,126 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.Difficulty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the terrain half of a bed check against reproducible synthetic worlds.
+ * <p>
+ * {@link BedSafetyChecker#isBedSafe}, {@link BedSafetyChecker#existingHostileMobCanReachBed}
+ * and {@link CheckBedLocation#isWithinVillageStructure} need a running server — live
+ * entities, their navigation and structure starts from real chunks — so they are not
+ * measured here. The benchmarks cover the snapshot-based parts they are built on.
+ * <p>
+ * Sample-time mode reports latency percentiles; run with {@code -prof gc} (the Gradle
+ * {@code jmh} task does by default) to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BedSafetyBenchmark {
+
+    private static final long SHUFFLE_SEED = 0x5EEDL;
+    private static final BlockPos PLAYER_POS = SyntheticRegion.BED_POS.east();
+    private static final BlockPos[] SHARED_BEDS = {
+            SyntheticRegion.BED_POS, SyntheticRegion.BED_POS.north(3),
+            SyntheticRegion.BED_POS.south(3), SyntheticRegion.BED_POS.west(3)};
+    private static final BlockPos[] SHARED_PLAYERS = {
+            PLAYER_POS, SHARED_BEDS[1].east(), SHARED_BEDS[2].east(), SHARED_BEDS[3].east()};
+
+    @Param({"OPEN_PLAINS", "SEALED_BUNKER", "LIT_BASE_OVER_DARK_CAVE", "CLOSED_DOOR_HOUSE", "ZOMBIE_BOX"})
+    public SyntheticRegion.Scenario scenario;
+
+    private SyntheticRegion region;
+    private LongArrayList candidates;
+    private long[] zombieBoxMobs;
+    private int maxFallDistance;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+
+        region = SyntheticRegion.build(scenario);
+        candidates = SpawnCandidateScanner.scan(region, SyntheticRegion.BED_POS, SHUFFLE_SEED, BedCheckSettings.DEFAULTS);
+        zombieBoxMobs = SyntheticRegion.zombieBoxMobs();
+        maxFallDistance = ReachabilityField.maxFallDistance(Difficulty.NORMAL);
+    }
+
+    /**
+     * Secondary check end to end: candidate scan, one reachability field, one lookup per candidate.
+     */
+    @Benchmark
+    public long[] secondaryCheck() {
+        LongArrayList scanned = SpawnCandidateScanner.scan(region, SyntheticRegion.BED_POS, SHUFFLE_SEED, BedCheckSettings.DEFAULTS);
+        return BedSafetyChecker.findReachableSpawn(region, SyntheticRegion.BED_POS, PLAYER_POS, scanned, maxFallDistance);
+    }
+
+    /**
+     * {@link #secondaryCheck} with the scan and lookups split across the candidate search pool.
+     */
+    @Benchmark
+    public long[] parallelSecondaryCheck() {
+        return ParallelCandidateSearch.findReachableSpawn(region, SyntheticRegion.BED_POS, PLAYER_POS, SHUFFLE_SEED,
+                BedCheckSettings.DEFAULTS, maxFallDistance);
+    }
+
+    /**
+     * Batched secondary check for four beds a few blocks apart, to compare against four {@link #secondaryCheck}s.
+     */
+    @Benchmark
+    public long[][] sharedSecondaryCheck() {
+        return BedSafetyChecker.findReachableSpawns(region, SHARED_BEDS, SHARED_PLAYERS, BedCheckSettings.DEFAULTS, maxFallDistance);
+    }
+
+    @Benchmark
+    public LongArrayList candidateScan() {
+        return SpawnCandidateScanner.scan(region, SyntheticRegion.BED_POS, SHUFFLE_SEED, BedCheckSettings.DEFAULTS);
+    }
+
+    @Benchmark
+    public ReachabilityField reachabilityField() {
+        return ReachabilityField.compute(region, SyntheticRegion.BED_POS, PLAYER_POS, maxFallDistance);
+    }
+
+    /**
+     * One reachability field and a lookup per candidate of a prepared list — {@link #secondaryCheck} without the scan.
+     */
+    @Benchmark
+    public long[] fieldAndCandidateLookups() {
+        return BedSafetyChecker.findReachableSpawn(region, SyntheticRegion.BED_POS, PLAYER_POS, candidates, maxFallDistance);
+    }
+
+    /**
+     * The sealed-off screen the existing-mob check runs before any pathfinding: one field and
+     * a lookup for each of the 50 mobs of the zombie box. The searches for the mobs that pass
+     * need live entities and are not included.
+     */
+    @Benchmark
+    public void mobFieldScreening(Blackhole blackhole) {
+        ReachabilityField field = ReachabilityField.compute(region, SyntheticRegion.BED_POS, PLAYER_POS, maxFallDistance);
+        for (long mob : zombieBoxMobs) {
+            blackhole.consume(field.isReachable(BlockPos.getX(mob), BlockPos.getY(mob), BlockPos.getZ(mob)));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package harderbeds.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.block.BedBlock;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.DoorBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BedPart;
+import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
+
+import java.util.Arrays;
+
+/**
+ * In-memory stand-in for the world around a bed, used by the benchmarks instead of a level.
+ * <p>
+ * Covers the same volume {@link BedRegionSnapshot#captureAround} copies, with every column
+ * loaded. Worlds are built from fixed formulas, so every run sees the same blocks.
+ */
+final class SyntheticRegion implements RegionView {
+
+    static final BlockPos BED_POS = new BlockPos(0, 64, 0);
+
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+    private static final BlockState STONE = Blocks.STONE.defaultBlockState();
+    private static final BlockState GRASS = Blocks.GRASS_BLOCK.defaultBlockState();
+    private static final BlockState PLANKS = Blocks.OAK_PLANKS.defaultBlockState();
+
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int sizeY, sizeZ;
+    private final BlockState[] states;
+    private final byte[] light;
+
+    private SyntheticRegion() {
+        int horizontal = BedCheckSettings.DEFAULTS.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN;
+        int vertical = BedCheckSettings.DEFAULTS.verticalRadius() + ReachabilityField.VERTICAL_MARGIN;
+        this.minX = BED_POS.getX() - horizontal;
+        this.minY = BED_POS.getY() - vertical;
+        this.minZ = BED_POS.getZ() - horizontal;
+        this.maxX = BED_POS.getX() + horizontal;
+        this.maxY = BED_POS.getY() + vertical + 2;
+        this.maxZ = BED_POS.getZ() + horizontal;
+        this.sizeY = maxY - minY + 1;
+        this.sizeZ = maxZ - minZ + 1;
+
+        int volume = (maxX - minX + 1) * sizeY * sizeZ;
+        this.states = new BlockState[volume];
+        this.light = new byte[volume];
+        Arrays.fill(states, AIR);
+    }
+
+    // -------------------------------------------------------------------------
+    // Scenarios
+    // -------------------------------------------------------------------------
+
+    enum Scenario {
+        OPEN_PLAINS, SEALED_BUNKER, LIT_BASE_OVER_DARK_CAVE, CLOSED_DOOR_HOUSE, ZOMBIE_BOX
+    }
+
+    static SyntheticRegion build(Scenario scenario) {
+        SyntheticRegion region = new SyntheticRegion();
+        switch (scenario) {
+            case OPEN_PLAINS -> region.hills();
+            case SEALED_BUNKER -> {
+                region.fill(region.minX, region.minY, region.minZ, region.maxX, region.maxY, region.maxZ, STONE);
+                // Dark caves all around that never connect to the bunker.
+                for (int i = 0; i < 8; i++) {
+                    int cx = (i % 4) * 12 - 18, cz = (i / 4) * 24 - 12;
+                    region.fill(cx, BED_POS.getY() - 9, cz, cx + 6, BED_POS.getY() - 6, cz + 6, AIR);
+                }
+                region.fill(-3, BED_POS.getY(), -3, 3, BED_POS.getY() + 2, 3, AIR);
+            }
+            case LIT_BASE_OVER_DARK_CAVE -> {
+                region.fill(region.minX, region.minY, region.minZ, region.maxX, BED_POS.getY() - 1, region.maxZ, STONE);
+                region.fill(region.minX, BED_POS.getY() - 1, region.minZ, region.maxX, BED_POS.getY() - 1, region.maxZ, GRASS);
+                region.light(-12, BED_POS.getY(), -12, 12, BED_POS.getY() + 3, 12, 14);
+                // Large dark cave under the base, open to the surface through a shaft at the edge.
+                region.fill(-18, BED_POS.getY() - 10, -18, 18, BED_POS.getY() - 6, 18, AIR);
+                region.fill(16, BED_POS.getY() - 6, 16, 17, BED_POS.getY() - 1, 17, AIR);
+            }
+            case CLOSED_DOOR_HOUSE -> {
+                region.hills();
+                region.fill(-3, BED_POS.getY() - 1, -3, 3, BED_POS.getY() + 3, 3, PLANKS);
+                region.fill(-2, BED_POS.getY(), -2, 2, BED_POS.getY() + 2, 2, AIR);
+                BlockState door = Blocks.OAK_DOOR.defaultBlockState().setValue(DoorBlock.FACING, Direction.SOUTH);
+                region.set(0, BED_POS.getY(), 3, door.setValue(DoorBlock.HALF, DoubleBlockHalf.LOWER));
+                region.set(0, BED_POS.getY() + 1, 3, door.setValue(DoorBlock.HALF, DoubleBlockHalf.UPPER));
+            }
+            case ZOMBIE_BOX -> {
+                region.hills();
+                // Dark pit below the bed, packed with spawnable floor and reachable by a ramp.
+                region.fill(-10, BED_POS.getY() - 12, -10, 10, BED_POS.getY() - 8, 10, AIR);
+                for (int step = 0; step < 8; step++) {
+                    region.fill(11 + step, BED_POS.getY() - 8 + step, -1, 11 + step, BED_POS.getY() + 4, 1, AIR);
+                }
+            }
+        }
+        BlockState bed = Blocks.RED_BED.defaultBlockState().setValue(BedBlock.FACING, Direction.NORTH);
+        region.set(BED_POS.getX(), BED_POS.getY(), BED_POS.getZ(), bed.setValue(BedBlock.PART, BedPart.HEAD));
+        region.set(BED_POS.getX(), BED_POS.getY(), BED_POS.getZ() + 1, bed.setValue(BedBlock.PART, BedPart.FOOT));
+        return region;
+    }
+
+    /**
+     * Feet positions of the 50 mobs standing on the floor of the {@link Scenario#ZOMBIE_BOX} pit.
+     */
+    static long[] zombieBoxMobs() {
+        long[] mobs = new long[50];
+        for (int i = 0; i < mobs.length; i++) {
+            mobs[i] = BlockPos.asLong((i % 10) * 2 - 9, BED_POS.getY() - 12, (i / 10) * 4 - 9);
+        }
+        return mobs;
+    }
+
+    // -------------------------------------------------------------------------
+    // RegionView
+    // -------------------------------------------------------------------------
+
+    @Override public int getMinX() { return minX; }
+    @Override public int getMinY() { return minY; }
+    @Override public int getMinZ() { return minZ; }
+    @Override public int getMaxX() { return maxX; }
+    @Override public int getMaxY() { return maxY; }
+    @Override public int getMaxZ() { return maxZ; }
+
+    @Override
+    public boolean isLoaded(int x, int z) {
+        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        int index = indexOf(x, y, z);
+        return index < 0 ? AIR : states[index];
+    }
+
+    @Override
+    public int getBlockLight(int x, int y, int z) {
+        int index = indexOf(x, y, z);
+        return index < 0 ? 0 : light[index];
+    }
+
+    @Override
+    public int getSkyLight(int x, int y, int z) {
+        return 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Builders
+    // -------------------------------------------------------------------------
+
+    /**
+     * Rolling grass hills up to six blocks above and below the bed, stone underneath.
+     */
+    private void hills() {
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                int surface = BED_POS.getY() - 1 + (int) Math.round(6 * Math.sin(x * 0.3) * Math.cos(z * 0.25));
+                if (Math.abs(x) <= 4 && Math.abs(z) <= 4) surface = BED_POS.getY() - 1;
+                fill(x, minY, z, x, surface - 1, z, STONE);
+                set(x, surface, z, GRASS);
+            }
+        }
+    }
+
+    private void fill(int x1, int y1, int z1, int x2, int y2, int z2, BlockState state) {
+        for (int x = x1; x <= x2; x++) {
+            for (int z = z1; z <= z2; z++) {
+                for (int y = y1; y <= y2; y++) {
+                    set(x, y, z, state);
+                }
+            }
+        }
+    }
+
+    private void light(int x1, int y1, int z1, int x2, int y2, int z2, int level) {
+        for (int x = x1; x <= x2; x++) {
+            for (int z = z1; z <= z2; z++) {
+                for (int y = y1; y <= y2; y++) {
+                    int index = indexOf(x, y, z);
+                    if (index >= 0) light[index] = (byte) level;
+                }
+            }
+        }
+    }
+
+    private void set(int x, int y, int z, BlockState state) {
+        int index = indexOf(x, y, z);
+        if (index >= 0) states[index] = state;
+    }
+
+    private int indexOf(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) return -1;
+        return ((x - minX) * sizeZ + (z - minZ)) * sizeY + (y - minY);
+    }
+}
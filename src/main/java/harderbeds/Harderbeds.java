@@ -1,18 +1,107 @@
 package harderbeds;
 
+import harderbeds.command.HarderBedsCommand;
+import harderbeds.config.ConfigWatcher;
+import harderbeds.config.ModConfig;
+import harderbeds.network.PathOverlayPayload;
+import harderbeds.util.AsyncBedSafety;
+import harderbeds.util.BedCheckMetrics;
+import harderbeds.util.BedSafetyStore;
+import harderbeds.util.BedVerdictCache;
+import harderbeds.util.DummyNavigatorPool;
+import harderbeds.util.EnclosureCheck;
+import harderbeds.util.MobPathCache;
+import harderbeds.util.ParallelCandidateSearch;
+import harderbeds.util.PathOverlay;
+import harderbeds.util.PhantomGate;
+import harderbeds.util.PlacedBedTracker;
+import harderbeds.util.SleepSessions;
+import harderbeds.util.SpawnCandidateIndex;
+import harderbeds.util.VillageStructureCache;
+import harderbeds.util.VillageStructureSet;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.BedBlock;
 
 
 
 public class Harderbeds implements ModInitializer {
 
 	public static final String MOD_ID = "harderbeds";
-	public static final boolean debug = false;
+
+	/** Five minutes between bed check summaries in the log. */
+	private static final int STATS_SUMMARY_INTERVAL_TICKS = 20 * 60 * 5;
+	/** Five minutes between writes of changed bed safety regions. */
+	private static final int STORE_FLUSH_INTERVAL_TICKS = 20 * 60 * 5;
+
+	/** The running server, for applying settings published from another thread. */
+	private static volatile MinecraftServer runningServer;
 
 
 
 	@Override
 	public void onInitialize() {
-
+		PayloadTypeRegistry.playS2C().register(PathOverlayPayload.TYPE, PathOverlayPayload.CODEC);
+		ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+			PathOverlay.forget(handler.getPlayer().getUUID());
+			PhantomGate.forget(handler.getPlayer().getUUID());
+		});
+		ServerTickEvents.END_SERVER_TICK.register(AsyncBedSafety::tick);
+		ServerTickEvents.END_SERVER_TICK.register(PlacedBedTracker::tick);
+		ServerTickEvents.END_SERVER_TICK.register(SleepSessions::tick);
+		PlayerBlockBreakEvents.AFTER.register((level, player, pos, state, blockEntity) -> {
+			if (level instanceof ServerLevel serverLevel && state.getBlock() instanceof BedBlock) {
+				PlacedBedTracker.onBedRemoved(serverLevel, PlacedBedTracker.headOf(state, pos));
+			}
+		});
+		ServerTickEvents.END_SERVER_TICK.register(server -> {
+			if (server.getTickCount() % STATS_SUMMARY_INTERVAL_TICKS == 0) BedCheckMetrics.logSummary();
+			if (server.getTickCount() % STORE_FLUSH_INTERVAL_TICKS == 0) BedSafetyStore.flush();
+		});
+		CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) ->
+				HarderBedsCommand.register(dispatcher));
+		ModConfig.onPublish(() -> {
+			MinecraftServer server = runningServer;
+			if (server != null) server.execute(() -> {
+				VillageStructureSet.rebuild(server);
+				PhantomGate.rebuild(server);
+			});
+		});
+		ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+			VillageStructureSet.rebuild(server);
+			PhantomGate.rebuild(server);
+			runningServer = server;
+			ConfigWatcher.start();
+		});
+		ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> {
+			VillageStructureSet.rebuild(server);
+			PhantomGate.rebuild(server);
+		});
+		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+			ConfigWatcher.stop();
+			runningServer = null;
+			AsyncBedSafety.shutdown();
+			BedSafetyStore.flush();
+			BedSafetyStore.clear();
+			BedVerdictCache.clear();
+			DummyNavigatorPool.clear();
+			EnclosureCheck.clear();
+			MobPathCache.clear();
+			ParallelCandidateSearch.shutdown();
+			PathOverlay.clear();
+			PhantomGate.clear();
+			PlacedBedTracker.clear();
+			SleepSessions.clear();
+			SpawnCandidateIndex.clear();
+			VillageStructureCache.clear();
+			VillageStructureSet.clear();
+		});
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package harderbeds.client;
+
+import harderbeds.network.PathOverlayPayload;
+import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+
+public class HarderbedsClient implements ClientModInitializer {
+
+    @Override
+    public void onInitializeClient() {
+        ClientPlayNetworking.registerGlobalReceiver(PathOverlayPayload.TYPE,
+                (payload, context) -> PathOverlayRenderer.show(payload.nodes()));
+        ClientTickEvents.END_CLIENT_TICK.register(PathOverlayRenderer::tick);
+    }
+}
@@ -2,7 +2,10 @@ package harderbeds.client;
 
 import com.terraformersmc.modmenu.api.ConfigScreenFactory;
 import com.terraformersmc.modmenu.api.ModMenuApi;
+import harderbeds.config.FallbackVerdict;
 import harderbeds.config.ModConfig;
+import harderbeds.config.PhantomSpawnMode;
+import harderbeds.config.SpawnSearchMode;
 import me.shedaniel.clothconfig2.api.ConfigBuilder;
 import me.shedaniel.clothconfig2.api.ConfigCategory;
 import me.shedaniel.clothconfig2.api.ConfigEntryBuilder;
@@ -17,17 +20,17 @@ public class ModMenu implements ModMenuApi {
                     .setParentScreen(parent)
                     .setTitle(Component.literal("Harder Beds Configuration"));
 
-            // Set the action to perform when the user saves the configuration
+            // Edit a copy, and publish it in one step when the user saves the configuration
+            ModConfig.HarderBedsSettings settings = ModConfig.copySettings();
             builder.setSavingRunnable(() -> {
-                ModConfig.saveSettings();
+                ModConfig.saveSettings(settings);
             });
 
             // Get the Main category
             ConfigCategory mainCategory = builder.getOrCreateCategory(Component.literal("Main"));
             ConfigEntryBuilder entryBuilder = builder.entryBuilder();
 
-            // Get current and default settings for comparison
-            ModConfig.HarderBedsSettings settings = ModConfig.getSettings();
+            // Get default settings for comparison
             ModConfig.HarderBedsSettings defaults = new ModConfig.HarderBedsSettings();
 
             mainCategory.addEntry(
@@ -41,6 +44,170 @@ public class ModMenu implements ModMenuApi {
                             .build()
             );
            
+            mainCategory.addEntry(
+                    entryBuilder.startBooleanToggle(
+                                    Component.literal("Use Flood-Fill Reachability"),
+                                    settings.isFloodFillReachabilityEnabled()
+                            )
+                            .setDefaultValue(defaults.isFloodFillReachabilityEnabled())
+                            .setTooltip(Component.literal("If enabled, one walkable-area flood fill from the bed answers every potential spawn spot. If disabled, a dummy zombie pathfinds from each spot separately (slower)."))
+                            .setSaveConsumer(settings::setFloodFillReachability)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startBooleanToggle(
+                                    Component.literal("Parallel Candidate Search"),
+                                    settings.isParallelCandidateSearchEnabled()
+                            )
+                            .setDefaultValue(defaults.isParallelCandidateSearchEnabled())
+                            .setTooltip(Component.literal("Only used with flood-fill reachability. Splits the search for potential spawn spots across up to 4 background threads. The verdict is the same as without it."))
+                            .setSaveConsumer(settings::setParallelCandidateSearch)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startBooleanToggle(
+                                    Component.literal("Vanilla Spawn Rules"),
+                                    settings.isVanillaSpawnRulesEnabled()
+                            )
+                            .setDefaultValue(defaults.isVanillaSpawnRulesEnabled())
+                            .setTooltip(Component.literal("If enabled, potential spawn spots follow the real monster spawn rules: no spawning on glass, bedrock, magma or glowing blocks, and the dimension's own light limits (block light 0 in the Overworld). If disabled, any solid block below Min Light Level counts."))
+                            .setSaveConsumer(settings::setVanillaSpawnRules)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startEnumSelector(
+                                    Component.literal("Spawn Search Mode"),
+                                    SpawnSearchMode.class,
+                                    settings.getSpawnSearchMode()
+                            )
+                            .setDefaultValue(defaults.getSpawnSearchMode())
+                            .setTooltip(Component.literal("Only used without flood-fill reachability. REGION pathfinds from one spot per connected dark area, nearest first. RANDOM pathfinds from every spot in shuffled order (original behaviour)."))
+                            .setSaveConsumer(settings::setSpawnSearchMode)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startBooleanToggle(
+                                    Component.literal("Check Bed Safety Asynchronously"),
+                                    settings.isAsyncBedSafetyCheckEnabled()
+                            )
+                            .setDefaultValue(defaults.isAsyncBedSafetyCheckEnabled())
+                            .setTooltip(Component.literal("If enabled, the terrain scan runs on a worker thread and the pathfinding is spread over several ticks. The player lies down (or is refused) a few ticks after clicking the bed."))
+                            .setSaveConsumer(settings::setAsyncBedSafetyCheck)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntSlider(
+                                    Component.literal("Horizontal Search Radius"),
+                                    settings.getHorizontalSearchRadius(),
+                                    4, 64
+                            )
+                            .setDefaultValue(defaults.getHorizontalSearchRadius())
+                            .setTooltip(Component.literal("How far around the bed, in blocks, potential spawn spots and existing monsters are searched. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setHorizontalSearchRadius)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntSlider(
+                                    Component.literal("Vertical Search Radius"),
+                                    settings.getVerticalSearchRadius(),
+                                    2, 32
+                            )
+                            .setDefaultValue(defaults.getVerticalSearchRadius())
+                            .setTooltip(Component.literal("How far above and below the bed, in blocks, potential spawn spots and existing monsters are searched. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setVerticalSearchRadius)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntSlider(
+                                    Component.literal("Inner Exclusion Radius"),
+                                    settings.getInnerExclusionRadius(),
+                                    0, 63
+                            )
+                            .setDefaultValue(defaults.getInnerExclusionRadius())
+                            .setTooltip(Component.literal("Spawn spots closer to the bed than this are ignored, like the player exclusion zone of natural spawning. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setInnerExclusionRadius)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntSlider(
+                                    Component.literal("Minimum Light Level"),
+                                    settings.getMinLightLevel(),
+                                    0, 16
+                            )
+                            .setDefaultValue(defaults.getMinLightLevel())
+                            .setTooltip(Component.literal("Spots with block light at or above this level count as lit and cannot spawn monsters. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setMinLightLevel)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntField(
+                                    Component.literal("Max Path Searches Per Check"),
+                                    settings.getMaxPathSearchesPerCheck()
+                            )
+                            .setDefaultValue(defaults.getMaxPathSearchesPerCheck())
+                            .setMin(0)
+                            .setTooltip(Component.literal("Upper limit of pathfinding runs for a single bed check; a flood fill counts as one. 0 means unlimited. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setMaxPathSearchesPerCheck)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntField(
+                                    Component.literal("Max Check Time (microseconds)"),
+                                    settings.getMaxCheckMicros()
+                            )
+                            .setDefaultValue(defaults.getMaxCheckMicros())
+                            .setMin(0)
+                            .setTooltip(Component.literal("Upper limit of server-thread time for a single bed check. 0 means unlimited. Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setMaxCheckMicros)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startEnumSelector(
+                                    Component.literal("Verdict When Budget Runs Out"),
+                                    FallbackVerdict.class,
+                                    settings.getBudgetFallbackVerdict()
+                            )
+                            .setDefaultValue(defaults.getBudgetFallbackVerdict())
+                            .setTooltip(Component.literal("Whether a bed check that hits its path or time limit lets the player sleep (SAFE) or refuses (UNSAFE). Can be overridden per dimension under dimensionOverrides in settings.json."))
+                            .setSaveConsumer(settings::setBudgetFallbackVerdict)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntField(
+                                    Component.literal("Beds Precomputed Per Tick"),
+                                    settings.getPrecomputeBedsPerTick()
+                            )
+                            .setDefaultValue(defaults.getPrecomputeBedsPerTick())
+                            .setMin(0)
+                            .setTooltip(Component.literal("How many placed beds of online players are checked per tick at dusk, so their verdict is cached before anyone sleeps. Needs flood-fill reachability. 0 turns it off."))
+                            .setSaveConsumer(settings::setPrecomputeBedsPerTick)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startIntSlider(
+                                    Component.literal("Precompute Start Time"),
+                                    settings.getPrecomputeStartTime(),
+                                    0, 12541
+                            )
+                            .setDefaultValue(defaults.getPrecomputeStartTime())
+                            .setTooltip(Component.literal("Time of day (in ticks) at which placed beds start being checked ahead of the night. Monsters can spawn from 12542 on."))
+                            .setSaveConsumer(settings::setPrecomputeStartTime)
+                            .build()
+            );
+
             mainCategory.addEntry(
                     entryBuilder.startBooleanToggle(
                                     Component.literal("Visualize Mob Path"),
@@ -74,6 +241,17 @@ public class ModMenu implements ModMenuApi {
                             .build()
             );
 
+            mainCategory.addEntry(
+                    entryBuilder.startStrList(
+                                    Component.literal("Extra Village Structures"),
+                                    settings.getExtraVillageStructures()
+                            )
+                            .setDefaultValue(defaults.getExtraVillageStructures())
+                            .setTooltip(Component.literal("Structure IDs (e.g. modid:village_jungle) that count as villages in addition to the #minecraft:village tag. Takes effect as soon as the settings are saved."))
+                            .setSaveConsumer(settings::setExtraVillageStructures)
+                            .build()
+            );
+
             mainCategory.addEntry(
                     entryBuilder.startBooleanToggle(
                                     Component.literal("Disable Phantom Spawning"),
@@ -85,6 +263,29 @@ public class ModMenu implements ModMenuApi {
                             .build()
             );
 
+            mainCategory.addEntry(
+                    entryBuilder.startEnumSelector(
+                                    Component.literal("Phantom Spawn Mode"),
+                                    PhantomSpawnMode.class,
+                                    settings.getPhantomSpawnMode()
+                            )
+                            .setDefaultValue(defaults.getPhantomSpawnMode())
+                            .setTooltip(Component.literal("Only used when phantom spawning is not disabled. ALL_PLAYERS is vanilla. REFUSED_BEDS only lets phantoms find players who were refused an unsafe bed and have not slept since."))
+                            .setSaveConsumer(settings::setPhantomSpawnMode)
+                            .build()
+            );
+
+            mainCategory.addEntry(
+                    entryBuilder.startStrList(
+                                    Component.literal("Phantom Dimensions"),
+                                    settings.getPhantomDimensions()
+                            )
+                            .setDefaultValue(defaults.getPhantomDimensions())
+                            .setTooltip(Component.literal("Dimension IDs (e.g. minecraft:overworld) where phantoms may spawn. Empty allows every dimension. Takes effect as soon as the settings are saved."))
+                            .setSaveConsumer(settings::setPhantomDimensions)
+                            .build()
+            );
+
             return builder.build();
         };
     }
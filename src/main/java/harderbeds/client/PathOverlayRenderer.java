@@ -0,0 +1,59 @@
+package harderbeds.client;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.particles.ParticleTypes;
+
+/**
+ * Draws the last received monster walk as a dotted line of local particles.
+ * <p>
+ * The line is redrawn every {@link #REDRAW_TICKS} for {@link #SHOW_TICKS}, two dots per
+ * block between consecutive nodes, with a marker at the bed. Particles are added to the
+ * client level directly, so nothing goes over the network, and a new walk replaces the
+ * one on screen rather than adding to it.
+ */
+public final class PathOverlayRenderer {
+
+    private static final int SHOW_TICKS = 60;
+    private static final int REDRAW_TICKS = 10;
+    private static final int DOTS_PER_STEP = 2;
+
+    private static long[] nodes;
+    private static int ticksLeft;
+
+    private PathOverlayRenderer() {
+    }
+
+    static void show(long[] walk) {
+        nodes = walk;
+        ticksLeft = SHOW_TICKS;
+    }
+
+    static void tick(Minecraft client) {
+        if (nodes == null) return;
+        ClientLevel level = client.level;
+        if (level == null || ticksLeft <= 0 || nodes.length == 0) {
+            nodes = null;
+            return;
+        }
+        if (ticksLeft-- % REDRAW_TICKS != 0) return;
+
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            double fromX = BlockPos.getX(nodes[i]) + 0.5, toX = BlockPos.getX(nodes[i + 1]) + 0.5;
+            double fromY = BlockPos.getY(nodes[i]) + 0.5, toY = BlockPos.getY(nodes[i + 1]) + 0.5;
+            double fromZ = BlockPos.getZ(nodes[i]) + 0.5, toZ = BlockPos.getZ(nodes[i + 1]) + 0.5;
+            for (int dot = 0; dot < DOTS_PER_STEP; dot++) {
+                double t = (double) dot / DOTS_PER_STEP;
+                level.addParticle(ParticleTypes.SOUL_FIRE_FLAME,
+                        fromX + (toX - fromX) * t, fromY + (toY - fromY) * t, fromZ + (toZ - fromZ) * t,
+                        0.0, 0.0, 0.0);
+            }
+        }
+
+        long end = nodes[nodes.length - 1];
+        level.addParticle(ParticleTypes.FLAME,
+                BlockPos.getX(end) + 0.5, BlockPos.getY(end) + 0.5, BlockPos.getZ(end) + 0.5,
+                0.0, 0.02, 0.0);
+    }
+}
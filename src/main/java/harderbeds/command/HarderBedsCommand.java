@@ -0,0 +1,101 @@
+package harderbeds.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import harderbeds.Harderbeds;
+import harderbeds.config.ModConfig;
+import harderbeds.util.BedCheckMetrics;
+import harderbeds.util.BedCheckTrace;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.EntityArgument;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * {@code /harderbeds stats [reset]} — shows or clears the bed check metrics.
+ * {@code /harderbeds trace player|region|off|dump} — controls the bed check trace. Operators only.
+ */
+public final class HarderBedsCommand {
+
+    private HarderBedsCommand() {
+    }
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("harderbeds")
+                .requires(Commands.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                .then(Commands.literal("stats")
+                        .executes(context -> showStats(context.getSource()))
+                        .then(Commands.literal("reset")
+                                .executes(context -> resetStats(context.getSource()))))
+                .then(Commands.literal("trace")
+                        .then(Commands.literal("player")
+                                .then(Commands.argument("targets", EntityArgument.players())
+                                        .executes(HarderBedsCommand::tracePlayers)))
+                        .then(Commands.literal("region")
+                                .then(Commands.argument("radius", IntegerArgumentType.integer(1, 1024))
+                                        .executes(HarderBedsCommand::traceRegion)))
+                        .then(Commands.literal("off")
+                                .executes(context -> traceOff(context.getSource())))
+                        .then(Commands.literal("dump")
+                                .executes(context -> dumpTrace(context.getSource())))));
+    }
+
+    private static int showStats(CommandSourceStack source) {
+        source.sendSuccess(() -> Component.literal("Harder Beds check stats:"), false);
+        for (String line : BedCheckMetrics.report()) {
+            source.sendSuccess(() -> Component.literal("  " + line), false);
+        }
+        return 1;
+    }
+
+    private static int resetStats(CommandSourceStack source) {
+        BedCheckMetrics.reset();
+        source.sendSuccess(() -> Component.literal("Harder Beds check stats reset."), true);
+        return 1;
+    }
+
+    private static int tracePlayers(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        Collection<ServerPlayer> players = EntityArgument.getPlayers(context, "targets");
+        for (ServerPlayer player : players) {
+            BedCheckTrace.tracePlayer(player.getUUID());
+        }
+        context.getSource().sendSuccess(() -> Component.literal("Tracing bed checks of " + players.size() + " player(s)."), true);
+        return players.size();
+    }
+
+    private static int traceRegion(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        int radius = IntegerArgumentType.getInteger(context, "radius");
+        BlockPos center = BlockPos.containing(source.getPosition());
+        BedCheckTrace.traceRegion(source.getLevel().dimension(), center, radius);
+        source.sendSuccess(() -> Component.literal("Tracing bed checks within " + radius + " blocks of " + center.toShortString() + "."), true);
+        return 1;
+    }
+
+    private static int traceOff(CommandSourceStack source) {
+        BedCheckTrace.disarm();
+        source.sendSuccess(() -> Component.literal("Bed check tracing off. " + BedCheckTrace.size() + " event(s) still buffered."), true);
+        return 1;
+    }
+
+    private static int dumpTrace(CommandSourceStack source) {
+        try {
+            Path file = BedCheckTrace.dump(FabricLoader.getInstance().getGameDir().resolve(Harderbeds.MOD_ID).resolve("traces"));
+            source.sendSuccess(() -> Component.literal("Bed check trace written to " + file), false);
+            return 1;
+        } catch (IOException e) {
+            ModConfig.LOGGER.error("Failed to write bed check trace", e);
+            source.sendFailure(Component.literal("Failed to write bed check trace: " + e.getMessage()));
+            return 0;
+        }
+    }
+}
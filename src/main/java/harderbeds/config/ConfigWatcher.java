@@ -0,0 +1,103 @@
+package harderbeds.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the settings file while the server runs.
+ * <p>
+ * A daemon thread watches the config directory. Once the settings file has been quiet for
+ * {@link #SETTLE_MILLIS}, so an editor's save lands as a whole, it is parsed on that thread
+ * and published through {@link ModConfig#reloadSettings}. Our own saves are recognized by
+ * their content and skipped there.
+ */
+public final class ConfigWatcher {
+
+    private static final long SETTLE_MILLIS = 250;
+
+    private static WatchService watchService;
+    private static Thread thread;
+
+    private ConfigWatcher() {
+    }
+
+    public static synchronized void start() {
+        if (thread != null) return;
+        Path settingsPath = ModConfig.settingsPath();
+        Path directory = settingsPath.getParent();
+        try {
+            Files.createDirectories(directory);
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            ModConfig.LOGGER.error("Failed to watch the HarderBeds settings file, edits need a restart", e);
+            closeQuietly();
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = new Thread(() -> watch(service, settingsPath.getFileName()), "HarderBeds Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized void stop() {
+        if (thread == null) return;
+        closeQuietly();
+        thread.interrupt();
+        thread = null;
+    }
+
+    private static void watch(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                if (!drain(service.take(), fileName)) continue;
+                // Wait until the file stops changing.
+                WatchKey key;
+                while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key, fileName);
+                }
+                try {
+                    ModConfig.reloadSettings();
+                } catch (Exception e) {
+                    ModConfig.LOGGER.error("Failed to reload HarderBeds settings", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    /**
+     * Drains the key's events and resets it.
+     * @return Whether one of the events was for the settings file.
+     */
+    private static boolean drain(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private static void closeQuietly() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+        watchService = null;
+    }
+}
@@ -0,0 +1,9 @@
+package harderbeds.config;
+
+/**
+ * The verdict a bed check gives when it runs out of its path search or time budget.
+ */
+public enum FallbackVerdict {
+    SAFE,
+    UNSAFE
+}
@@ -13,16 +13,33 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Loads, saves and publishes the mod settings.
+ * <p>
+ * The settings in use are one published snapshot behind a volatile reference. A snapshot is
+ * frozen when it is published, and its setters throw from then on. The ModMenu screen edits
+ * a {@link #copySettings copy} and publishes a copy of that, and {@link ConfigWatcher}
+ * publishes whatever the file holds after it is edited by hand. Readers on any thread get a whole snapshot without taking a lock; a reader
+ * that needs several values that belong together reads {@link #getSettings} once.
+ */
 public class ModConfig {
     public static final Logger LOGGER = LoggerFactory.getLogger("harderbeds");
 
     private static final String SETTINGS_FILE = "harderbeds/settings.json";
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
-    private static HarderBedsSettings settings;
-    private static final List<String> configErrors = new ArrayList<>();
+    private static volatile HarderBedsSettings settings;
+    /** The file content the published snapshot was read from or written as, to skip our own saves. */
+    private static volatile String syncedJson;
+    private static final List<Runnable> publishListeners = new CopyOnWriteArrayList<>();
+    private static final List<String> configErrors = Collections.synchronizedList(new ArrayList<>());
     public static boolean isInitialized = false;
 
     // Static initializer to load the config as soon as the class is accessed
@@ -38,6 +55,7 @@ public class ModConfig {
                 settings = new HarderBedsSettings();
             }
         }
+        settings.freeze();
     }
 
     /**
@@ -49,12 +67,38 @@ public class ModConfig {
         private boolean preventBedDropInVillages = true;
         private boolean enableVillageBedPenalty = true;
         private boolean disablePhantomSpawning = true;
+        private PhantomSpawnMode phantomSpawnMode = PhantomSpawnMode.ALL_PLAYERS;
+        private List<String> phantomDimensions = new ArrayList<>();
+        private boolean asyncBedSafetyCheck = false;
+        private boolean floodFillReachability = true;
+        private boolean parallelCandidateSearch = false;
+        private boolean vanillaSpawnRules = true;
+        private SpawnSearchMode spawnSearchMode = SpawnSearchMode.REGION;
+        private List<String> extraVillageStructures = new ArrayList<>();
+
+        // Search volume and per-check budget. Budgets of 0 mean unlimited.
+        private int horizontalSearchRadius = 20;
+        private int verticalSearchRadius = 10;
+        private int innerExclusionRadius = 3;
+        private int minLightLevel = 8;
+        private int maxPathSearchesPerCheck = 0;
+        private int maxCheckMicros = 0;
+        private FallbackVerdict budgetFallbackVerdict = FallbackVerdict.UNSAFE;
+        private Map<String, DimensionOverride> dimensionOverrides = new HashMap<>();
+
+        // Checking placed beds ahead of nightfall. 0 beds per tick turns it off.
+        private int precomputeBedsPerTick = 2;
+        private int precomputeStartTime = 11500;
+
+        /** Set once published; every setter then throws. Never serialized, so copies start editable. */
+        private transient boolean frozen;
 
         public boolean shouldSimulateMobPathingOnSleep() {
             return simulateMobPathingOnSleep;
         }
 
         public void setSimulateMobPathingOnSleep(boolean simulateMobPathingOnSleep) {
+            checkEditable();
             this.simulateMobPathingOnSleep = simulateMobPathingOnSleep;
         }
 
@@ -63,6 +107,7 @@ public class ModConfig {
         }
 
         public void setVisualizeMobPath(boolean visualizeMobPath) {
+            checkEditable();
             this.visualizeMobPath = visualizeMobPath;
         }
 
@@ -71,6 +116,7 @@ public class ModConfig {
         }
 
         public void setPreventBedDropInVillages(boolean preventBedDropInVillages) {
+            checkEditable();
             this.preventBedDropInVillages = preventBedDropInVillages;
         }
 
@@ -79,6 +125,7 @@ public class ModConfig {
         }
 
         public void setEnableVillageBedPenalty(boolean enableVillageBedPenalty) {
+            checkEditable();
             this.enableVillageBedPenalty = enableVillageBedPenalty;
         }
 
@@ -87,40 +134,336 @@ public class ModConfig {
         }
 
         public void setPhantomSpawningDisabled(boolean disablePhantomSpawning) {
+            checkEditable();
             this.disablePhantomSpawning = disablePhantomSpawning;
         }
+
+        public PhantomSpawnMode getPhantomSpawnMode() {
+            return phantomSpawnMode == null ? PhantomSpawnMode.ALL_PLAYERS : phantomSpawnMode;
+        }
+
+        public void setPhantomSpawnMode(PhantomSpawnMode phantomSpawnMode) {
+            checkEditable();
+            this.phantomSpawnMode = phantomSpawnMode;
+        }
+
+        public List<String> getPhantomDimensions() {
+            return phantomDimensions == null ? List.of() : phantomDimensions;
+        }
+
+        public void setPhantomDimensions(List<String> phantomDimensions) {
+            checkEditable();
+            this.phantomDimensions = new ArrayList<>(phantomDimensions);
+        }
+
+        public boolean isAsyncBedSafetyCheckEnabled() {
+            return asyncBedSafetyCheck;
+        }
+
+        public void setAsyncBedSafetyCheck(boolean asyncBedSafetyCheck) {
+            checkEditable();
+            this.asyncBedSafetyCheck = asyncBedSafetyCheck;
+        }
+
+        public boolean isFloodFillReachabilityEnabled() {
+            return floodFillReachability;
+        }
+
+        public void setFloodFillReachability(boolean floodFillReachability) {
+            checkEditable();
+            this.floodFillReachability = floodFillReachability;
+        }
+
+        public boolean isParallelCandidateSearchEnabled() {
+            return parallelCandidateSearch;
+        }
+
+        public void setParallelCandidateSearch(boolean parallelCandidateSearch) {
+            checkEditable();
+            this.parallelCandidateSearch = parallelCandidateSearch;
+        }
+
+        public boolean isVanillaSpawnRulesEnabled() {
+            return vanillaSpawnRules;
+        }
+
+        public void setVanillaSpawnRules(boolean vanillaSpawnRules) {
+            checkEditable();
+            this.vanillaSpawnRules = vanillaSpawnRules;
+        }
+
+        public SpawnSearchMode getSpawnSearchMode() {
+            return spawnSearchMode == null ? SpawnSearchMode.REGION : spawnSearchMode;
+        }
+
+        public void setSpawnSearchMode(SpawnSearchMode spawnSearchMode) {
+            checkEditable();
+            this.spawnSearchMode = spawnSearchMode;
+        }
+
+        public int getHorizontalSearchRadius() {
+            return horizontalSearchRadius;
+        }
+
+        public void setHorizontalSearchRadius(int horizontalSearchRadius) {
+            checkEditable();
+            this.horizontalSearchRadius = horizontalSearchRadius;
+        }
+
+        public int getVerticalSearchRadius() {
+            return verticalSearchRadius;
+        }
+
+        public void setVerticalSearchRadius(int verticalSearchRadius) {
+            checkEditable();
+            this.verticalSearchRadius = verticalSearchRadius;
+        }
+
+        public int getInnerExclusionRadius() {
+            return innerExclusionRadius;
+        }
+
+        public void setInnerExclusionRadius(int innerExclusionRadius) {
+            checkEditable();
+            this.innerExclusionRadius = innerExclusionRadius;
+        }
+
+        public int getMinLightLevel() {
+            return minLightLevel;
+        }
+
+        public void setMinLightLevel(int minLightLevel) {
+            checkEditable();
+            this.minLightLevel = minLightLevel;
+        }
+
+        public int getMaxPathSearchesPerCheck() {
+            return maxPathSearchesPerCheck;
+        }
+
+        public void setMaxPathSearchesPerCheck(int maxPathSearchesPerCheck) {
+            checkEditable();
+            this.maxPathSearchesPerCheck = maxPathSearchesPerCheck;
+        }
+
+        public int getMaxCheckMicros() {
+            return maxCheckMicros;
+        }
+
+        public void setMaxCheckMicros(int maxCheckMicros) {
+            checkEditable();
+            this.maxCheckMicros = maxCheckMicros;
+        }
+
+        public FallbackVerdict getBudgetFallbackVerdict() {
+            return budgetFallbackVerdict == null ? FallbackVerdict.UNSAFE : budgetFallbackVerdict;
+        }
+
+        public void setBudgetFallbackVerdict(FallbackVerdict budgetFallbackVerdict) {
+            checkEditable();
+            this.budgetFallbackVerdict = budgetFallbackVerdict;
+        }
+
+        public int getPrecomputeBedsPerTick() {
+            return precomputeBedsPerTick;
+        }
+
+        public void setPrecomputeBedsPerTick(int precomputeBedsPerTick) {
+            checkEditable();
+            this.precomputeBedsPerTick = precomputeBedsPerTick;
+        }
+
+        public int getPrecomputeStartTime() {
+            return precomputeStartTime;
+        }
+
+        public void setPrecomputeStartTime(int precomputeStartTime) {
+            checkEditable();
+            this.precomputeStartTime = precomputeStartTime;
+        }
+
+        /**
+         * Overrides keyed by dimension ID, e.g. {@code "minecraft:the_nether"}. Only editable in the settings file.
+         */
+        public Map<String, DimensionOverride> getDimensionOverrides() {
+            return dimensionOverrides == null ? Map.of() : dimensionOverrides;
+        }
+
+        public List<String> getExtraVillageStructures() {
+            return extraVillageStructures == null ? List.of() : extraVillageStructures;
+        }
+
+        public void setExtraVillageStructures(List<String> extraVillageStructures) {
+            checkEditable();
+            this.extraVillageStructures = new ArrayList<>(extraVillageStructures);
+        }
+
+        /**
+         * Makes the settings read-only before they are published: setters throw, and the lists
+         * and the override map can no longer be changed.
+         */
+        private void freeze() {
+            if (frozen) return;
+            phantomDimensions = Collections.unmodifiableList(new ArrayList<>(getPhantomDimensions()));
+            extraVillageStructures = Collections.unmodifiableList(new ArrayList<>(getExtraVillageStructures()));
+            dimensionOverrides = Collections.unmodifiableMap(new LinkedHashMap<>(getDimensionOverrides()));
+            frozen = true;
+        }
+
+        private void checkEditable() {
+            if (frozen) {
+                throw new IllegalStateException("Published settings are read-only, edit ModConfig.copySettings() instead");
+            }
+        }
+    }
+
+    /**
+     * Per-dimension replacements for the search volume and budget settings.
+     * Any field left out of the settings file keeps the global value.
+     */
+    public static class DimensionOverride {
+        private Integer horizontalSearchRadius;
+        private Integer verticalSearchRadius;
+        private Integer innerExclusionRadius;
+        private Integer minLightLevel;
+        private Integer maxPathSearchesPerCheck;
+        private Integer maxCheckMicros;
+        private FallbackVerdict budgetFallbackVerdict;
+
+        public Integer getHorizontalSearchRadius() {
+            return horizontalSearchRadius;
+        }
+
+        public Integer getVerticalSearchRadius() {
+            return verticalSearchRadius;
+        }
+
+        public Integer getInnerExclusionRadius() {
+            return innerExclusionRadius;
+        }
+
+        public Integer getMinLightLevel() {
+            return minLightLevel;
+        }
+
+        public Integer getMaxPathSearchesPerCheck() {
+            return maxPathSearchesPerCheck;
+        }
+
+        public Integer getMaxCheckMicros() {
+            return maxCheckMicros;
+        }
+
+        public FallbackVerdict getBudgetFallbackVerdict() {
+            return budgetFallbackVerdict;
+        }
     }
 
     /**
-     * Gets the loaded settings object.
+     * Gets the published settings snapshot. It must not be modified; edit {@link #copySettings} instead.
      * @return The current settings.
      */
     public static HarderBedsSettings getSettings() {
-        if (settings == null) {
+        HarderBedsSettings current = settings;
+        if (current == null) {
             LOGGER.error("CRITICAL: Settings accessed before initialization or after a critical failure. Using emergency defaults.");
-            settings = new HarderBedsSettings(); // Emergency fallback
+            current = new HarderBedsSettings(); // Emergency fallback
+            current.freeze();
+            settings = current;
         }
-        return settings;
+        return current;
+    }
+
+    /**
+     * A deep, modifiable copy of the published settings, for editing and then {@link #saveSettings}.
+     */
+    public static HarderBedsSettings copySettings() {
+        return copyOf(getSettings());
+    }
+
+    /**
+     * Runs the listener on the publishing thread after every newly published snapshot.
+     */
+    public static void onPublish(Runnable listener) {
+        publishListeners.add(listener);
     }
 
     /**
-     * Public method to trigger a save of the current settings to the file.
+     * Publishes a copy of edited settings and saves it to the file.
+     * @param edited Settings from {@link #copySettings}; they stay editable for the next save.
      */
-    public static void saveSettings() {
+    public static synchronized void saveSettings(HarderBedsSettings edited) {
         if (!isInitialized) {
             LOGGER.error("Attempted to save settings before initialization.");
             return;
         }
+        publish(copyOf(edited));
         try {
-            Path settingsPath = FabricLoader.getInstance().getConfigDir().resolve(SETTINGS_FILE);
+            Path settingsPath = settingsPath();
             saveSettingsConfig(settingsPath);
         } catch (IOException e) {
             // Error is already logged by saveSettingsConfig
         }
     }
 
+    /**
+     * Reads the settings file again and publishes it if it changed. A file that does not parse
+     * is logged and the published settings stay in use. Called off-thread by {@link ConfigWatcher}.
+     * @return Whether new settings were published.
+     */
+    public static synchronized boolean reloadSettings() {
+        Path settingsPath = settingsPath();
+        String content;
+        try {
+            content = Files.readString(settingsPath, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read changed HarderBeds settings file: {}", e.getMessage());
+            return false;
+        }
+        if (content.equals(syncedJson)) return false;
+
+        HarderBedsSettings loaded;
+        try {
+            loaded = GSON.fromJson(content, HarderBedsSettings.class);
+        } catch (JsonSyntaxException e) {
+            String error = "Malformed JSON in changed settings file, keeping the current settings: " + e.getMessage();
+            LOGGER.error(error);
+            configErrors.add(error);
+            return false;
+        }
+        if (loaded == null) {
+            LOGGER.warn("Changed settings file is empty, keeping the current settings.");
+            return false;
+        }
+
+        syncedJson = content;
+        publish(loaded);
+        LOGGER.info("Reloaded HarderBeds settings from file.");
+        return true;
+    }
+
+    private static HarderBedsSettings copyOf(HarderBedsSettings source) {
+        return GSON.fromJson(GSON.toJson(source), HarderBedsSettings.class);
+    }
+
+    static Path settingsPath() {
+        return FabricLoader.getInstance().getConfigDir().resolve(SETTINGS_FILE);
+    }
+
+    private static void publish(HarderBedsSettings next) {
+        next.freeze();
+        settings = next;
+        for (Runnable listener : publishListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                LOGGER.error("Settings publish listener failed", e);
+            }
+        }
+    }
+
     private static void loadOrCreateSettingsConfig() {
-        Path settingsPath = FabricLoader.getInstance().getConfigDir().resolve(SETTINGS_FILE);
+        Path settingsPath = settingsPath();
         try {
             Path configDir = settingsPath.getParent();
             if (configDir != null && !Files.exists(configDir)) {
@@ -152,6 +495,7 @@ public class ModConfig {
         try {
             String content = Files.readString(settingsPath, StandardCharsets.UTF_8);
             settings = GSON.fromJson(content, HarderBedsSettings.class);
+            syncedJson = content;
 
             if (settings == null) {
                 LOGGER.warn("Settings file was empty or corrupted. Reverting to default settings.");
@@ -183,6 +527,7 @@ public class ModConfig {
             }
 
             String jsonString = GSON.toJson(settings);
+            syncedJson = jsonString;
             // Use an atomic move for safe saving
             Path tempFile = settingsPath.resolveSibling(settingsPath.getFileName() + ".tmp");
             Files.writeString(tempFile, jsonString, StandardCharsets.UTF_8);
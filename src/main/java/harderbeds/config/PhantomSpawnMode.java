@@ -0,0 +1,11 @@
+package harderbeds.config;
+
+/**
+ * Which players the phantom spawner considers when phantom spawning is not disabled.
+ */
+public enum PhantomSpawnMode {
+    /** Every player, as in vanilla. */
+    ALL_PLAYERS,
+    /** Only players who were refused an unsafe bed and have not slept since. */
+    REFUSED_BEDS
+}
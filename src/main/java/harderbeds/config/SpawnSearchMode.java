@@ -0,0 +1,11 @@
+package harderbeds.config;
+
+/**
+ * How the pathfinder-based secondary check walks the spawn candidates.
+ */
+public enum SpawnSearchMode {
+    /** Every candidate, Y layers top-down and columns shuffled — the original scan. */
+    RANDOM,
+    /** One candidate per connected dark region, nearest region first. */
+    REGION
+}
@@ -1,22 +1,26 @@
 package harderbeds.events;
 
-import harderbeds.Harderbeds;
 import harderbeds.config.ModConfig;
 import harderbeds.util.CheckBedLocation;
+import harderbeds.util.PlacedBedTracker;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.item.ItemEntity;
 import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.item.BedItem;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.BedBlock;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.phys.AABB;
 
+/**
+ * Beds broken inside a village drop nothing.
+ * <p>
+ * The drop itself is cancelled in {@link harderbeds.mixin.BlockMixin} before any item
+ * entity exists, for both halves of the bed. Both halves ask about the head block, so
+ * they share one cached village answer. The break event only tells the player once.
+ */
 public class CancelVillageBedDrop implements ModInitializer {
 
     @Override
@@ -25,44 +29,33 @@ public class CancelVillageBedDrop implements ModInitializer {
                 onBlockBreakAfter(level, player, pos, state, blockEntity));
     }
 
-    private void onBlockBreakAfter(Level world, Player player, BlockPos pos, BlockState state, BlockEntity blockEntity) {
+    /**
+     * Whether the drops of this block should not spawn. Called from {@link harderbeds.mixin.BlockMixin}.
+     */
+    public static boolean shouldCancelDrop(ServerLevel world, BlockPos pos, BlockState state) {
         if (!ModConfig.getSettings().shouldPreventBedDropInVillages()) {
-            return;
-        }
-        if (world == null || player == null || pos == null || state == null) {
-            return;
+            return false;
         }
         if (!(state.getBlock() instanceof BedBlock)) {
-            return;
-        }
-        if (world.isClientSide() || !(world instanceof ServerLevel)) {
-            return;
+            return false;
         }
         try {
-            if (CheckBedLocation.isWithinVillageStructure(world, pos)) {
-                removeDropsAroundPosition(world, pos, player);
-            }
+            return CheckBedLocation.isWithinVillageStructure(world, PlacedBedTracker.headOf(state, pos));
         } catch (Exception e) {
-            if (Harderbeds.debug) System.err.println("Error in CancelVillageBedDrop event handler: " + e.getMessage());
-            e.printStackTrace();
+            ModConfig.LOGGER.error("Error checking village bed drop", e);
+            return false;
         }
     }
 
-    private void removeDropsAroundPosition(Level world, BlockPos pos, Player player) {
-        if (world == null || pos == null || world.isClientSide()) {
+    private void onBlockBreakAfter(Level world, Player player, BlockPos pos, BlockState state, BlockEntity blockEntity) {
+        if (world == null || player == null || pos == null || state == null) {
             return;
         }
-        try {
-            AABB searchBox = new AABB(pos).inflate(2.0);
-            world.getEntitiesOfClass(ItemEntity.class, searchBox, entity ->
-                    entity != null && entity.getItem() != null && entity.getItem().getItem() instanceof BedItem
-            ).forEach(itemEntity -> {
-                itemEntity.discard();
-                player.sendSystemMessage(Component.translatable("Cheap villager junk. Nothing worth keeping."));
-                if (Harderbeds.debug) System.out.println("Removed bed drop in village!");
-            });
-        } catch (Exception e) {
-            if (Harderbeds.debug) System.err.println("Error removing drops: " + e.getMessage());
+        if (world.isClientSide() || !(world instanceof ServerLevel serverWorld) || player.isCreative()) {
+            return;
+        }
+        if (shouldCancelDrop(serverWorld, pos, state)) {
+            player.sendSystemMessage(Component.translatable("Cheap villager junk. Nothing worth keeping."));
         }
     }
-}
\ No newline at end of file
+}
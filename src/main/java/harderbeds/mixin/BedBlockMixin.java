@@ -1,11 +1,18 @@
 package harderbeds.mixin;
 
 import harderbeds.config.ModConfig;
+import harderbeds.util.AsyncBedSafety;
+import harderbeds.util.PhantomGate;
+import harderbeds.util.PlacedBedTracker;
+import harderbeds.util.SleepSessions;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionResult;
+import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.BedBlock;
 import net.minecraft.world.level.block.state.BlockState;
@@ -13,6 +20,7 @@ import net.minecraft.world.phys.BlockHitResult;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(BedBlock.class)
@@ -27,34 +35,60 @@ public class BedBlockMixin {
 
         if (ModConfig.getSettings().shouldSimulateMobPathingOnSleep()) {
 
-        if (!world.isClientSide() && world instanceof ServerLevel) {
+        if (!world.isClientSide() && world instanceof ServerLevel serverWorld) {
+            // Replay of an interaction that already passed the asynchronous check.
+            if (AsyncBedSafety.isReplaying()) {
+                return;
+            }
             try {
-                if (!harderbeds.util.BedSafetyChecker.isBedSafe(world, pos, player)) {
+                // Both halves are checked as the head, so they share cached verdicts.
+                BlockPos headPos = PlacedBedTracker.headOf(state, pos);
+                PlacedBedTracker.onBedUsed(serverWorld, headPos, player.getUUID());
+
+                if (ModConfig.getSettings().isAsyncBedSafetyCheckEnabled() && player instanceof ServerPlayer serverPlayer) {
+                    if (AsyncBedSafety.beginCheck(serverWorld, headPos, serverPlayer, hit)) {
+                        cir.setReturnValue(InteractionResult.SUCCESS);
+                    }
+                    return;
+                }
+
+                if (!harderbeds.util.BedSafetyChecker.isBedSafe(world, headPos, player)) {
 
                     player.sendSystemMessage(Component.translatable("Monsters can reach the bed!"));
+                    PhantomGate.onBedRefused(player);
                     cir.setReturnValue(InteractionResult.SUCCESS);
                 }
             } catch (Exception e) {
-                // Log error if you have a logger
-                e.printStackTrace();
+                ModConfig.LOGGER.error("Failed to check bed safety at {}", pos, e);
             }
         }
     }
     }
 
+    @Inject(method = "setPlacedBy", at = @At("TAIL"))
+    private void trackPlacedBed(Level world, BlockPos pos, BlockState state, LivingEntity placer, ItemStack stack, CallbackInfo ci) {
+        if (world instanceof ServerLevel serverWorld && placer instanceof ServerPlayer player) {
+            PlacedBedTracker.onBedPlaced(serverWorld, pos.relative(state.getValue(BedBlock.FACING)), player.getUUID());
+        }
+    }
+
     @Inject(method = "useWithoutItem", at = @At("TAIL"), cancellable = true)
     private void checkVillageBedSleep(BlockState state, Level world, BlockPos pos, Player player, BlockHitResult hit, CallbackInfoReturnable<InteractionResult> cir) {
 
+        if (!world.isClientSide() && player.isSleeping()) {
+            PhantomGate.onSlept(player);
+        }
+
         if (ModConfig.getSettings().isVillageBedPenaltyEnabled()) {
 
             if ((cir.getReturnValue() == InteractionResult.SUCCESS_SERVER || cir.getReturnValue() == InteractionResult.SUCCESS) && player.isSleeping()) {
-                if (!world.isClientSide() && world instanceof ServerLevel) {
+                if (!world.isClientSide() && world instanceof ServerLevel serverWorld) {
                     try {
-                        if (!harderbeds.util.BedSafetyChecker.isBedAllowed(world, pos)) {
+                        if (SleepSessions.onLieDown(serverWorld, player, pos)) {
                             player.sendSystemMessage(Component.translatable("Prepare for a night full of weird villager dreams...."));
                         }
                     } catch (Exception e) {
-                        e.printStackTrace();
+                        ModConfig.LOGGER.error("Failed to start the sleep session at {}", pos, e);
                     }
                 }
             }
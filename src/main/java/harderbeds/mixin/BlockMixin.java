@@ -0,0 +1,39 @@
+package harderbeds.mixin;
+
+import harderbeds.events.CancelVillageBedDrop;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Block.class)
+public class BlockMixin {
+
+    // Half removed because its other half was broken, or a bed broken by a piston.
+    @Inject(method = "dropResources(Lnet/minecraft/world/level/block/state/BlockState;Lnet/minecraft/world/level/LevelAccessor;Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/block/entity/BlockEntity;)V",
+            at = @At("HEAD"), cancellable = true)
+    private static void cancelVillageBedDrop(BlockState state, LevelAccessor level, BlockPos pos, BlockEntity blockEntity, CallbackInfo ci) {
+        if (level instanceof ServerLevel serverLevel && CancelVillageBedDrop.shouldCancelDrop(serverLevel, pos, state)) {
+            ci.cancel();
+        }
+    }
+
+    // Half broken by a player.
+    @Inject(method = "dropResources(Lnet/minecraft/world/level/block/state/BlockState;Lnet/minecraft/world/level/Level;Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/block/entity/BlockEntity;Lnet/minecraft/world/entity/Entity;Lnet/minecraft/world/item/ItemStack;)V",
+            at = @At("HEAD"), cancellable = true)
+    private static void cancelVillageBedDropByEntity(BlockState state, Level level, BlockPos pos, BlockEntity blockEntity,
+                                                     Entity breaker, ItemStack tool, CallbackInfo ci) {
+        if (level instanceof ServerLevel serverLevel && CancelVillageBedDrop.shouldCancelDrop(serverLevel, pos, state)) {
+            ci.cancel();
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package harderbeds.mixin;
 
 import harderbeds.config.ModConfig;
-import net.minecraft.core.BlockPos;
-import net.minecraft.network.chat.Component;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.effect.MobEffectInstance;
-import net.minecraft.world.effect.MobEffects;
+import harderbeds.util.SleepSessions;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.level.Level;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
@@ -17,9 +12,6 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 @Mixin(LivingEntity.class)
 public class LivingEntityMixin {
 
-    private static int badEffectDurationMinutes = 5;
-
-
     @Inject(method = "stopSleeping", at = @At("HEAD"))
     private void onWakeUp(CallbackInfo ci) {
 
@@ -29,36 +21,16 @@ public class LivingEntityMixin {
 
             LivingEntity self = (LivingEntity) (Object) this;
 
-            // Only apply to players
-            if (!(self instanceof Player)) {
+            // Only apply to players; the village verdict was stored when they lay down.
+            if (!(self instanceof ServerPlayer player)) {
                 return;
             }
 
-            Player player = (Player) self;
-            Level world = player.level();
-
-            if (world.getOverworldClockTime() % 24000L < 1000L) {
-
-                if (!world.isClientSide() && world instanceof ServerLevel) {
-
-                    try {
-                        // Get the sleeping position
-                        BlockPos sleepingPos = player.getSleepingPos().orElse(null);
-                        if (sleepingPos != null) {
-                            if (!harderbeds.util.BedSafetyChecker.isBedAllowed(world, sleepingPos)) {
-                                player.addEffect(new MobEffectInstance(MobEffects.HUNGER, badEffectDurationMinutes * 60 * 20, 0));
-                                player.addEffect(new MobEffectInstance(MobEffects.SLOWNESS, badEffectDurationMinutes * 60 * 20, 0));
-                                player.addEffect(new MobEffectInstance(MobEffects.WEAKNESS, badEffectDurationMinutes * 60 * 20, 0));
-                                player.addEffect(new MobEffectInstance(MobEffects.MINING_FATIGUE, badEffectDurationMinutes * 60 * 20, 0));
-
-                                player.sendSystemMessage(Component.translatable("That was an uncomfortable night..."));
-                            }
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
+            try {
+                SleepSessions.onWakeUp(player, player.level().getOverworldClockTime() % 24000L < 1000L);
+            } catch (Exception e) {
+                ModConfig.LOGGER.error("Failed to end the sleep session of {}", player.getName().getString(), e);
             }
         }
     }
-}
\ No newline at end of file
+}
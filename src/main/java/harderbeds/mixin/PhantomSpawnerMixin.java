@@ -1,20 +1,29 @@
 package harderbeds.mixin;
 
-import harderbeds.config.ModConfig;
+import harderbeds.util.PhantomGate;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.levelgen.PhantomSpawner;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.List;
+
 @Mixin(PhantomSpawner.class)
 public class PhantomSpawnerMixin {
 
     @Inject(method = "tick", at = @At("HEAD"), cancellable = true)
     private void checkPhantomSpawning(ServerLevel world, boolean spawnMonsters, CallbackInfo ci) {
-        if (ModConfig.getSettings().isPhantomSpawningDisabled()) {
+        if (PhantomGate.shouldSkipTick(world)) {
             ci.cancel();
         }
     }
-}
\ No newline at end of file
+
+    @Redirect(method = "tick", at = @At(value = "INVOKE", target = "Lnet/minecraft/server/level/ServerLevel;players()Ljava/util/List;"))
+    private List<ServerPlayer> gatePlayers(ServerLevel world) {
+        return PhantomGate.eligiblePlayers(world);
+    }
+}
@@ -0,0 +1,28 @@
+package harderbeds.mixin;
+
+import harderbeds.util.SectionChangeTracker;
+import harderbeds.util.SpawnRules;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.LightLayer;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerChunkCache.class)
+public class ServerChunkCacheMixin {
+
+    @Shadow @Final ServerLevel level;
+
+    @Inject(method = "onLightUpdate", at = @At("HEAD"))
+    private void trackLightChange(LightLayer layer, SectionPos pos, CallbackInfo ci) {
+        // Sky light only matters where the spawn rules filter on it, e.g. in some custom dimensions.
+        if (layer == LightLayer.BLOCK || (layer == LightLayer.SKY && SpawnRules.levelChecksSkyLight(level))) {
+            SectionChangeTracker.onLightChanged(level, pos.asLong());
+        }
+    }
+}
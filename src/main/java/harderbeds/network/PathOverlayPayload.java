@@ -0,0 +1,101 @@
+package harderbeds.network;
+
+import harderbeds.Harderbeds;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.Identifier;
+
+import java.util.Arrays;
+
+/**
+ * The walk of a monster that can reach a bed, sent to the player who clicked it.
+ * <p>
+ * The first node is written as a packed {@link BlockPos}, each following node as the step
+ * from the one before. Steps of at most one block per axis — nearly all of them — take a
+ * single byte; longer ones, such as falls, take an escape byte and three zigzag varints.
+ * A 60-node path fits in about 70 bytes.
+ *
+ * @param nodes the walk as packed {@link BlockPos#asLong} values, ending at the bed
+ */
+public record PathOverlayPayload(long[] nodes) implements CustomPacketPayload {
+
+    /** Longer walks are cut from the start; the end at the bed is what matters. */
+    public static final int MAX_NODES = 256;
+
+    public static final Type<PathOverlayPayload> TYPE =
+            new Type<>(Identifier.fromNamespaceAndPath(Harderbeds.MOD_ID, "path_overlay"));
+    public static final StreamCodec<FriendlyByteBuf, PathOverlayPayload> CODEC =
+            CustomPacketPayload.codec(PathOverlayPayload::write, PathOverlayPayload::read);
+
+    /** 27 single-byte steps, {@code (dx + 1) * 9 + (dy + 1) * 3 + (dz + 1)}; this byte escapes a long step. */
+    private static final int LONG_STEP = 27;
+
+    public static PathOverlayPayload of(long[] nodes) {
+        return new PathOverlayPayload(nodes.length <= MAX_NODES ? nodes
+                : Arrays.copyOfRange(nodes, nodes.length - MAX_NODES, nodes.length));
+    }
+
+    @Override
+    public Type<PathOverlayPayload> type() {
+        return TYPE;
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(nodes.length);
+        if (nodes.length == 0) return;
+        buf.writeLong(nodes[0]);
+
+        for (int i = 1; i < nodes.length; i++) {
+            int dx = BlockPos.getX(nodes[i]) - BlockPos.getX(nodes[i - 1]);
+            int dy = BlockPos.getY(nodes[i]) - BlockPos.getY(nodes[i - 1]);
+            int dz = BlockPos.getZ(nodes[i]) - BlockPos.getZ(nodes[i - 1]);
+            if (Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && Math.abs(dz) <= 1) {
+                buf.writeByte((dx + 1) * 9 + (dy + 1) * 3 + (dz + 1));
+            } else {
+                buf.writeByte(LONG_STEP);
+                buf.writeVarInt(zigzag(dx));
+                buf.writeVarInt(zigzag(dy));
+                buf.writeVarInt(zigzag(dz));
+            }
+        }
+    }
+
+    private static PathOverlayPayload read(FriendlyByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_NODES) {
+            throw new DecoderException("Path overlay with " + count + " nodes");
+        }
+        long[] nodes = new long[count];
+        if (count == 0) return new PathOverlayPayload(nodes);
+        nodes[0] = buf.readLong();
+
+        for (int i = 1; i < count; i++) {
+            int step = buf.readUnsignedByte();
+            int dx, dy, dz;
+            if (step == LONG_STEP) {
+                dx = unzigzag(buf.readVarInt());
+                dy = unzigzag(buf.readVarInt());
+                dz = unzigzag(buf.readVarInt());
+            } else if (step < LONG_STEP) {
+                dx = step / 9 - 1;
+                dy = step / 3 % 3 - 1;
+                dz = step % 3 - 1;
+            } else {
+                throw new DecoderException("Bad path overlay step " + step);
+            }
+            nodes[i] = BlockPos.offset(nodes[i - 1], dx, dy, dz);
+        }
+        return new PathOverlayPayload(nodes);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
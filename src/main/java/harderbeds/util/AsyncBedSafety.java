@@ -0,0 +1,550 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import harderbeds.config.SpawnSearchMode;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.block.BedBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.BlockHitResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous mode for the bed safety check.
+ * <p>
+ * A bed click only runs the cheap checks on the tick thread, then snapshots the chunk
+ * sections around the bed and scans them for spawn candidates on a worker thread. With
+ * flood-fill reachability the worker also produces the verdict. Otherwise dummy
+ * pathfinding for the candidates is spread over the following ticks with a fixed budget
+ * of path searches per tick. Once the verdict is known the player is either refused or
+ * the original bed interaction is replayed. Results computed from a snapshot whose
+ * sections changed in the meantime are discarded and the scan is redone.
+ * <p>
+ * Clicks are collected until the next tick and then grouped: beds in the same level whose
+ * search boxes all overlap share one monster query, and with flood-fill reachability also
+ * one snapshot, one candidate scan and one reachability pass, so a whole group of sleepers
+ * in one base costs about as much as a single bed. A check whose batch snapshot went stale
+ * is rescanned on its own.
+ */
+public final class AsyncBedSafety {
+
+    private static final int WORKER_THREADS = 2;
+    private static final int PATH_SEARCHES_PER_TICK = 16;
+    private static final int MAX_SCAN_ATTEMPTS = 3;
+    private static final int MAX_BATCH_SIZE = ReachabilityField.MAX_SHARED_BEDS;
+
+    private static final Map<UUID, PendingCheck> PENDING = new LinkedHashMap<>();
+    /** Checks clicked since the last tick, not started yet. Each is also in {@link #PENDING}. */
+    private static final List<PendingCheck> QUEUED = new ArrayList<>();
+    private static ExecutorService workers;
+    private static boolean replaying = false;
+
+    private AsyncBedSafety() {
+    }
+
+    /**
+     * True while a bed interaction that already passed the async check is being replayed.
+     */
+    public static boolean isReplaying() {
+        return replaying;
+    }
+
+    /**
+     * Starts an asynchronous check for a bed click.
+     *
+     * @return true if the interaction was taken over and vanilla handling must be cancelled,
+     *         false if the bed is trivially safe and vanilla may proceed right away.
+     */
+    public static boolean beginCheck(ServerLevel world, BlockPos bedPos, ServerPlayer player, BlockHitResult hit) {
+        if (PENDING.containsKey(player.getUUID())) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        boolean traced = BedCheckTrace.begin(world, bedPos, player);
+        try {
+            return enqueue(world, bedPos, player, hit, start, traced);
+        } finally {
+            BedCheckTrace.pause();
+        }
+    }
+
+    private static boolean enqueue(ServerLevel world, BlockPos bedPos, ServerPlayer player, BlockHitResult hit,
+                                   long start, boolean traced) {
+        if (BedSafetyChecker.isTriviallySafe(world, bedPos)) {
+            BedCheckTrace.end(true, start);
+            return false;
+        }
+
+        PendingCheck check = new PendingCheck(world, bedPos.immutable(), player, hit,
+                BedCheckSettings.forLevel(world), start, traced);
+        PENDING.put(player.getUUID(), check);
+        QUEUED.add(check);
+        return true;
+    }
+
+    /**
+     * Advances pending checks. Called once per server tick.
+     */
+    public static void tick(MinecraftServer server) {
+        if (PENDING.isEmpty()) return;
+        if (!QUEUED.isEmpty()) startQueued();
+
+        int pathBudget = PATH_SEARCHES_PER_TICK;
+        Iterator<PendingCheck> iterator = PENDING.values().iterator();
+        while (iterator.hasNext()) {
+            PendingCheck check = iterator.next();
+            BedCheckTrace.resume(check.traced);
+            try {
+                pathBudget = advance(check, iterator, pathBudget);
+            } finally {
+                BedCheckTrace.pause();
+            }
+        }
+    }
+
+    /**
+     * Moves one pending check forward and removes it once it has a verdict.
+     *
+     * @return the path search budget left for this tick
+     */
+    private static int advance(PendingCheck check, Iterator<PendingCheck> iterator, int pathBudget) {
+        if (check.player.isRemoved() || check.player.level() != check.world) {
+            iterator.remove();
+            return pathBudget;
+        }
+        if (!check.scan.isDone()) return pathBudget;
+
+        if (check.scan.isCompletedExceptionally()) {
+            ModConfig.LOGGER.error("Asynchronous bed scan failed, falling back to a synchronous check.");
+            iterator.remove();
+            complete(check, BedSafetyChecker.isBedSafe(check.world, check.bedPos, check.player));
+            return pathBudget;
+        }
+
+        // Blocks changed since the snapshot was taken — the candidate list can't be trusted.
+        if (check.snapshot.isStale()) {
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.SNAPSHOT_STALE, check.attempts, check.bedPos.asLong());
+            if (check.attempts < MAX_SCAN_ATTEMPTS) {
+                check.submitScan();
+            } else {
+                iterator.remove();
+                complete(check, BedSafetyChecker.isBedSafe(check.world, check.bedPos, check.player));
+            }
+            return pathBudget;
+        }
+
+        ScanResult result = check.scan.join();
+        if (result.reachablePath != null) {
+            if (BedCheckTrace.recording) {
+                BedCheckTrace.record(BedCheckTrace.Event.REACHABLE_FROM, result.reachablePath.length,
+                        BlockPos.offset(result.reachablePath[0], 0, -1, 0));
+            }
+            if (ModConfig.getSettings().isMobPathVisualizationEnabled()) {
+                PathOverlay.show(check.world, check.player, result.reachablePath);
+            }
+            iterator.remove();
+            BedVerdictCache.put(check.world, check.bedPos, check.targetPos, false, check.settings);
+            finish(check, false);
+            return pathBudget;
+        }
+
+        LongArrayList candidates = result.candidates;
+        if (check.cursor == 0 && BedCheckTrace.recording) {
+            BedCheckTrace.record(BedCheckTrace.Event.CANDIDATES, candidates.size(), 0);
+        }
+
+        Boolean verdict = null;
+        long pathStart = System.nanoTime();
+        check.budget.resume();
+        while (pathBudget > 0 && check.cursor < candidates.size()) {
+            if (!check.budget.trySearch()) break;
+            pathBudget--;
+            BlockPos start = BlockPos.of(candidates.getLong(check.cursor++));
+            if (BedSafetyChecker.canMobReachBedViaDummy(check.world, start, check.bedPos, check.player)) {
+                verdict = false;
+                break;
+            }
+        }
+        check.budget.pause();
+        BedCheckMetrics.record(BedCheckMetrics.Phase.SPAWN_PATHS, pathStart);
+
+        if (verdict == null && check.budget.isExhausted() && check.cursor < candidates.size()) {
+            iterator.remove();
+            finish(check, BedSafetyChecker.budgetFallback(check.settings));
+            return pathBudget;
+        }
+        if (verdict == null && check.cursor >= candidates.size()) {
+            verdict = true;
+        }
+
+        if (verdict != null) {
+            iterator.remove();
+            BedVerdictCache.put(check.world, check.bedPos, check.targetPos, verdict, check.settings);
+            finish(check, verdict);
+        }
+        return pathBudget;
+    }
+
+    /**
+     * Groups the checks queued since the last tick and starts every group.
+     */
+    private static void startQueued() {
+        List<Batch> batches = new ArrayList<>();
+        for (PendingCheck check : QUEUED) {
+            Batch target = null;
+            for (Batch batch : batches) {
+                if (batch.accepts(check)) {
+                    target = batch;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new Batch(check.world, check.settings);
+                batches.add(target);
+            }
+            target.add(check);
+        }
+        QUEUED.clear();
+
+        for (Batch batch : batches) {
+            startBatch(batch);
+        }
+    }
+
+    /**
+     * Runs the tick-thread part of every check in the batch — one monster query for all of
+     * them, then per bed the cached verdict and the existing mobs — and submits the scans
+     * of those still undecided.
+     */
+    private static void startBatch(Batch batch) {
+        batch.checks.removeIf(check -> {
+            boolean gone = check.player.isRemoved() || check.player.level() != check.world;
+            if (gone) PENDING.remove(check.player.getUUID());
+            return gone;
+        });
+        if (batch.checks.isEmpty()) return;
+
+        List<Mob> batchMonsters = batch.checks.size() > 1
+                ? BedSafetyChecker.findMonstersIn(batch.world, batch.searchBox())
+                : null;
+
+        List<PendingCheck> undecided = new ArrayList<>();
+        for (PendingCheck check : batch.checks) {
+            BedCheckTrace.resume(check.traced);
+            try {
+                if (startCheck(check, batchMonsters)) {
+                    undecided.add(check);
+                } else {
+                    PENDING.remove(check.player.getUUID());
+                }
+            } finally {
+                BedCheckTrace.pause();
+            }
+        }
+
+        if (undecided.size() > 1 && ModConfig.getSettings().isFloodFillReachabilityEnabled()) {
+            submitSharedScan(undecided);
+        } else {
+            for (PendingCheck check : undecided) {
+                check.submitScan();
+            }
+        }
+    }
+
+    /**
+     * Sealed room, cached verdict and existing mobs for one check.
+     *
+     * @param batchMonsters monsters in the whole batch's box, or null to query this bed's box
+     * @return true if the check still needs a terrain scan, false if it was finished
+     */
+    private static boolean startCheck(PendingCheck check, List<Mob> batchMonsters) {
+        check.budget.resume();
+        if (batchMonsters == null) {
+            check.nearbyMobs = BedSafetyChecker.findNearbyMonsters(check.world, check.bedPos, check.settings);
+        } else {
+            AABB searchBox = BedSafetyChecker.searchBox(check.bedPos, check.settings);
+            check.nearbyMobs = new ArrayList<>();
+            for (Mob mob : batchMonsters) {
+                if (mob.getBoundingBox().intersects(searchBox)) check.nearbyMobs.add(mob);
+            }
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.MONSTERS, check.nearbyMobs.size(), 0);
+        }
+
+        if (EnclosureCheck.isSealed(check.world, check.bedPos, check.nearbyMobs, check.settings)) {
+            finish(check, true);
+            return false;
+        }
+
+        Boolean cachedVerdict = BedVerdictCache.lookup(check.world, check.bedPos, check.player.blockPosition(), check.settings);
+        if (cachedVerdict != null) {
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.CACHED_VERDICT, cachedVerdict ? 1 : 0, 0);
+            if (!cachedVerdict) {
+                finish(check, false);
+                return false;
+            }
+        }
+
+        // Existing entities are live state, so the primary check stays on the tick thread.
+        // A safe cached terrain verdict still needs it: mobs move without changing the region.
+        try {
+            if (BedSafetyChecker.existingHostileMobCanReachBed(check.world, check.bedPos, check.player, check.nearbyMobs,
+                    check.settings, check.budget)) {
+                finish(check, false);
+                return false;
+            }
+        } catch (CheckBudget.Exhausted e) {
+            finish(check, BedSafetyChecker.budgetFallback(check.settings));
+            return false;
+        }
+        if (cachedVerdict != null) {
+            finish(check, true);
+            return false;
+        }
+        if (check.budget.isExhausted()) {
+            finish(check, BedSafetyChecker.budgetFallback(check.settings));
+            return false;
+        }
+        check.budget.pause();
+        return true;
+    }
+
+    /**
+     * Captures one snapshot spanning every bed and answers all of them with one flood fill.
+     */
+    private static void submitSharedScan(List<PendingCheck> checks) {
+        PendingCheck first = checks.get(0);
+        BlockPos[] bedPositions = new BlockPos[checks.size()];
+        BlockPos[] targetPositions = new BlockPos[checks.size()];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < checks.size(); i++) {
+            BlockPos bedPos = checks.get(i).bedPos;
+            bedPositions[i] = bedPos;
+            targetPositions[i] = checks.get(i).player.blockPosition();
+            checks.get(i).targetPos = targetPositions[i];
+            minX = Math.min(minX, bedPos.getX());
+            minY = Math.min(minY, bedPos.getY());
+            minZ = Math.min(minZ, bedPos.getZ());
+            maxX = Math.max(maxX, bedPos.getX());
+            maxY = Math.max(maxY, bedPos.getY());
+            maxZ = Math.max(maxZ, bedPos.getZ());
+        }
+
+        BedCheckSettings settings = first.settings;
+        BedRegionSnapshot captured = BedRegionSnapshot.captureAround(first.world,
+                new BlockPos(minX, minY, minZ), new BlockPos(maxX, maxY, maxZ), settings);
+        int maxFallDistance = ReachabilityField.maxFallDistance(first.world.getDifficulty());
+
+        CompletableFuture<long[][]> shared = CompletableFuture.supplyAsync(() ->
+                BedSafetyChecker.findReachableSpawns(captured, bedPositions, targetPositions, settings, maxFallDistance),
+                getWorkers());
+
+        for (int i = 0; i < checks.size(); i++) {
+            int bed = i;
+            PendingCheck check = checks.get(i);
+            check.snapshot = captured;
+            check.scan = shared.thenApply(paths -> ScanResult.ofPath(paths[bed]));
+            check.attempts++;
+            check.cursor = 0;
+        }
+    }
+
+    private static void finish(PendingCheck check, boolean safe) {
+        BedCheckTrace.end(safe, check.startNanos);
+        BedCheckMetrics.verdict(safe);
+        complete(check, safe);
+    }
+
+    /**
+     * Drops all pending checks and stops the worker threads.
+     */
+    public static void shutdown() {
+        PENDING.clear();
+        QUEUED.clear();
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+
+    private static void complete(PendingCheck check, boolean safe) {
+        if (!safe) {
+            refuse(check.player);
+            return;
+        }
+
+        // The check runs on the head half; the replay must see the half that was clicked.
+        BlockState current = check.world.getBlockState(check.hit.getBlockPos());
+        if (!(current.getBlock() instanceof BedBlock)) return;
+
+        replaying = true;
+        try {
+            current.useWithoutItem(check.world, check.player, check.hit);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private static void refuse(ServerPlayer player) {
+        player.sendSystemMessage(Component.translatable("Monsters can reach the bed!"));
+        PhantomGate.onBedRefused(player);
+    }
+
+    private static ExecutorService getWorkers() {
+        if (workers == null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "HarderBeds Safety Worker #" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+
+    private static final class PendingCheck {
+        private final ServerLevel world;
+        private final BlockPos bedPos;
+        private final ServerPlayer player;
+        private final BlockHitResult hit;
+        private final BedCheckSettings settings;
+        private final CheckBudget budget;
+        private final long startNanos;
+        private final boolean traced;
+
+        private List<Mob> nearbyMobs;
+        /** The player's feet the scan walked to. */
+        private BlockPos targetPos;
+        private BedRegionSnapshot snapshot;
+        private CompletableFuture<ScanResult> scan;
+        private int attempts = 0;
+        private int cursor = 0;
+
+        private PendingCheck(ServerLevel world, BlockPos bedPos, ServerPlayer player, BlockHitResult hit,
+                             BedCheckSettings settings, long startNanos, boolean traced) {
+            this.world = world;
+            this.bedPos = bedPos;
+            this.player = player;
+            this.hit = hit;
+            this.settings = settings;
+            this.budget = new CheckBudget(settings);
+            this.startNanos = startNanos;
+            this.traced = traced;
+        }
+
+        private void submitScan() {
+            BedCheckSettings scanSettings = settings;
+            BedRegionSnapshot captured = BedRegionSnapshot.captureAround(world, bedPos, scanSettings);
+            BlockPos targetPos = player.blockPosition();
+            this.targetPos = targetPos;
+            long shuffleSeed = world.getRandom().nextLong();
+            int maxFallDistance = ReachabilityField.maxFallDistance(world.getDifficulty());
+            ModConfig.HarderBedsSettings config = ModConfig.getSettings();
+            boolean floodFill = config.isFloodFillReachabilityEnabled();
+            boolean parallel = config.isParallelCandidateSearchEnabled();
+            SpawnSearchMode searchMode = config.getSpawnSearchMode();
+
+            this.snapshot = captured;
+            this.scan = CompletableFuture.supplyAsync(() -> floodFill && parallel
+                    ? ScanResult.ofPath(ParallelCandidateSearch.findReachableSpawn(captured, bedPos, targetPos,
+                            shuffleSeed, scanSettings, maxFallDistance))
+                    : floodFill
+                    ? ScanResult.ofPath(BedSafetyChecker.findReachableSpawn(captured, bedPos, targetPos,
+                            SpawnCandidateScanner.scan(captured, bedPos, shuffleSeed, scanSettings), maxFallDistance))
+                    : ScanResult.ofCandidates(BedSafetyChecker.candidatesToPathfind(captured,
+                            SpawnCandidateScanner.scan(captured, bedPos, shuffleSeed, scanSettings), bedPos, searchMode)),
+                    getWorkers());
+            this.attempts++;
+            this.cursor = 0;
+        }
+    }
+
+    /**
+     * Checks from one tick that can share their work: same level, same settings, and beds
+     * close enough that every pair of search boxes overlaps.
+     */
+    private static final class Batch {
+        private final ServerLevel world;
+        private final BedCheckSettings settings;
+        private final List<PendingCheck> checks = new ArrayList<>();
+        private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        private Batch(ServerLevel world, BedCheckSettings settings) {
+            this.world = world;
+            this.settings = settings;
+        }
+
+        private boolean accepts(PendingCheck check) {
+            if (check.world != world || !check.settings.equals(settings) || checks.size() >= MAX_BATCH_SIZE) {
+                return false;
+            }
+            BlockPos bedPos = check.bedPos;
+            int horizontalSpan = 2 * settings.horizontalRadius();
+            int verticalSpan = 2 * settings.verticalRadius();
+            return Math.max(maxX, bedPos.getX()) - Math.min(minX, bedPos.getX()) <= horizontalSpan
+                    && Math.max(maxZ, bedPos.getZ()) - Math.min(minZ, bedPos.getZ()) <= horizontalSpan
+                    && Math.max(maxY, bedPos.getY()) - Math.min(minY, bedPos.getY()) <= verticalSpan;
+        }
+
+        private void add(PendingCheck check) {
+            checks.add(check);
+            minX = Math.min(minX, check.bedPos.getX());
+            minY = Math.min(minY, check.bedPos.getY());
+            minZ = Math.min(minZ, check.bedPos.getZ());
+            maxX = Math.max(maxX, check.bedPos.getX());
+            maxY = Math.max(maxY, check.bedPos.getY());
+            maxZ = Math.max(maxZ, check.bedPos.getZ());
+        }
+
+        /**
+         * Union of the search boxes of every bed in the batch.
+         */
+        private AABB searchBox() {
+            return new AABB(
+                    minX - settings.horizontalRadius(), minY - settings.verticalRadius(), minZ - settings.horizontalRadius(),
+                    maxX + settings.horizontalRadius(), maxY + settings.verticalRadius(), maxZ + settings.horizontalRadius());
+        }
+    }
+
+    /**
+     * What a worker hands back: either candidates still to be pathfound on the tick thread,
+     * or the flood-fill verdict (a walk to the bed, or none at all).
+     */
+    private static final class ScanResult {
+        private static final LongArrayList NO_CANDIDATES = new LongArrayList();
+
+        private final LongArrayList candidates;
+        private final long[] reachablePath;
+
+        private ScanResult(LongArrayList candidates, long[] reachablePath) {
+            this.candidates = candidates;
+            this.reachablePath = reachablePath;
+        }
+
+        private static ScanResult ofCandidates(LongArrayList candidates) {
+            return new ScanResult(candidates, null);
+        }
+
+        private static ScanResult ofPath(long[] reachablePath) {
+            return new ScanResult(NO_CANDIDATES, reachablePath);
+        }
+    }
+}
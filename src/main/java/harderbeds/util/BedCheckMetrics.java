@@ -0,0 +1,179 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead counters and latency histograms for the bed safety check.
+ * <p>
+ * Every phase keeps a call count, the total time and a histogram with power-of-two
+ * microsecond buckets, all in {@link LongAdder}s so worker threads can record without
+ * contention. Read through {@code /harderbeds stats} and the periodic log summary.
+ */
+public final class BedCheckMetrics {
+
+    public enum Phase {
+        /** A whole synchronous check. Asynchronous checks are only counted per phase. */
+        TOTAL("total"),
+        TRIVIAL_CHECK("biome/difficulty"),
+        VILLAGE_LOOKUP("village lookup"),
+        ENTITY_SCAN("entity scan"),
+        ENCLOSURE("enclosure check"),
+        MOB_PATHS("existing mob paths"),
+        CANDIDATE_SCAN("candidate scan"),
+        SPAWN_PATHS("spawn reachability");
+
+        private final String label;
+        private final PhaseStats stats = new PhaseStats();
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    public enum Counter {
+        CELLS_SCANNED("cells scanned"),
+        CANDIDATES_FOUND("candidates found"),
+        PATHS_COMPUTED("paths computed"),
+        MOBS_SCREENED("mobs screened out"),
+        MOB_PATHS_REUSED("mob paths reused"),
+        FIELDS_COMPUTED("reachability fields"),
+        VERDICTS_SAFE("safe verdicts"),
+        VERDICTS_UNSAFE("unsafe verdicts"),
+        BUDGET_EXHAUSTED("budget fallbacks");
+
+        private final String label;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Bucket {@code b} holds durations below {@code 2^b} microseconds; the last one is open-ended. */
+    private static final int BUCKETS = 24;
+
+    /** Checks counted at the last log summary. Server thread only. */
+    private static long summaryChecksSeen = 0;
+
+    private BedCheckMetrics() {
+    }
+
+    /**
+     * Records one run of a phase that started at {@code startNanos} ({@link System#nanoTime}).
+     */
+    public static void record(Phase phase, long startNanos) {
+        phase.stats.add(System.nanoTime() - startNanos);
+    }
+
+    public static void increment(Counter counter) {
+        counter.value.increment();
+    }
+
+    public static void add(Counter counter, long amount) {
+        counter.value.add(amount);
+    }
+
+    public static void verdict(boolean safe) {
+        increment(safe ? Counter.VERDICTS_SAFE : Counter.VERDICTS_UNSAFE);
+    }
+
+    public static void reset() {
+        for (Phase phase : Phase.values()) {
+            phase.stats.reset();
+        }
+        for (Counter counter : Counter.values()) {
+            counter.value.reset();
+        }
+        summaryChecksSeen = 0;
+    }
+
+    /**
+     * Human-readable report, one line per phase or counter group.
+     */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Phase phase : Phase.values()) {
+            PhaseStats stats = phase.stats;
+            long count = stats.count.sum();
+            if (count == 0) {
+                lines.add(String.format(Locale.ROOT, "%s: -", phase.label));
+                continue;
+            }
+            lines.add(String.format(Locale.ROOT, "%s: n=%d avg=%.1fus p50<%dus p99<%dus max<%dus",
+                    phase.label, count, stats.totalNanos.sum() / 1000.0 / count,
+                    stats.percentileMicros(0.50), stats.percentileMicros(0.99), stats.percentileMicros(1.0)));
+        }
+
+        StringBuilder counters = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            if (!counters.isEmpty()) counters.append(", ");
+            counters.append(counter.label).append('=').append(counter.value.sum());
+        }
+        lines.add(counters.toString());
+        lines.add(String.format(Locale.ROOT, "verdict cache: hits=%d, misses=%d, invalidations=%d, size=%d",
+                BedVerdictCache.getHits(), BedVerdictCache.getMisses(),
+                BedVerdictCache.getInvalidations(), BedVerdictCache.size()));
+        return lines;
+    }
+
+    /**
+     * Logs the report if any bed check ran since the last summary.
+     */
+    public static void logSummary() {
+        long checks = Counter.VERDICTS_SAFE.value.sum() + Counter.VERDICTS_UNSAFE.value.sum();
+        if (checks == summaryChecksSeen) return;
+        summaryChecksSeen = checks;
+
+        ModConfig.LOGGER.info("Bed check stats:");
+        for (String line : report()) {
+            ModConfig.LOGGER.info("  {}", line);
+        }
+    }
+
+    private static final class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        private PhaseStats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        private void add(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            count.increment();
+            totalNanos.add(nanos);
+            histogram[bucket].increment();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile.
+         */
+        private long percentileMicros(double quantile) {
+            long total = count.sum();
+            long threshold = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += histogram[bucket].sum();
+                if (seen >= threshold) return 1L << bucket;
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        private void reset() {
+            count.reset();
+            totalNanos.reset();
+            for (LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+        }
+    }
+}
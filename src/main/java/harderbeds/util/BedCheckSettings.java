@@ -0,0 +1,74 @@
+package harderbeds.util;
+
+import harderbeds.config.FallbackVerdict;
+import harderbeds.config.ModConfig;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+
+import java.util.Objects;
+
+/**
+ * Search volume, light threshold and budget of a bed check in one dimension.
+ * <p>
+ * Resolved from {@link ModConfig.HarderBedsSettings} with the dimension's override applied
+ * and every value clamped to a sane range. Immutable, so it can be handed to worker threads.
+ *
+ * @param maxPathSearches path searches allowed per check, 0 for unlimited
+ * @param maxMicros       time allowed per check in microseconds, 0 for unlimited
+ * @param spawnRules      the floors and light levels that count as spawnable, derived from the light level
+ */
+public record BedCheckSettings(int horizontalRadius, int verticalRadius, int exclusionRadius, int minLightLevel,
+                               int maxPathSearches, int maxMicros, FallbackVerdict fallbackVerdict,
+                               SpawnRules spawnRules) {
+
+    /** The values the mod shipped with before they became configurable. */
+    public static final BedCheckSettings DEFAULTS = new BedCheckSettings(20, 10, 3, 8, 0, 0, FallbackVerdict.UNSAFE,
+            SpawnRules.LEGACY);
+
+    public static BedCheckSettings forLevel(ServerLevel world) {
+        ModConfig.HarderBedsSettings settings = ModConfig.getSettings();
+        ModConfig.DimensionOverride override = settings.getDimensionOverrides().get(world.dimension().identifier().toString());
+
+        int horizontal = settings.getHorizontalSearchRadius();
+        int vertical = settings.getVerticalSearchRadius();
+        int exclusion = settings.getInnerExclusionRadius();
+        int minLight = settings.getMinLightLevel();
+        int maxPathSearches = settings.getMaxPathSearchesPerCheck();
+        int maxMicros = settings.getMaxCheckMicros();
+        FallbackVerdict fallback = settings.getBudgetFallbackVerdict();
+
+        if (override != null) {
+            if (override.getHorizontalSearchRadius() != null) horizontal = override.getHorizontalSearchRadius();
+            if (override.getVerticalSearchRadius() != null) vertical = override.getVerticalSearchRadius();
+            if (override.getInnerExclusionRadius() != null) exclusion = override.getInnerExclusionRadius();
+            if (override.getMinLightLevel() != null) minLight = override.getMinLightLevel();
+            if (override.getMaxPathSearchesPerCheck() != null) maxPathSearches = override.getMaxPathSearchesPerCheck();
+            if (override.getMaxCheckMicros() != null) maxMicros = override.getMaxCheckMicros();
+            if (override.getBudgetFallbackVerdict() != null) fallback = override.getBudgetFallbackVerdict();
+        }
+
+        horizontal = Mth.clamp(horizontal, 4, 64);
+        vertical = Mth.clamp(vertical, 2, 32);
+        minLight = Mth.clamp(minLight, 0, 16);
+        return new BedCheckSettings(horizontal, vertical,
+                Mth.clamp(exclusion, 0, horizontal - 1),
+                minLight,
+                Math.max(0, maxPathSearches),
+                Math.max(0, maxMicros),
+                fallback,
+                SpawnRules.forLevel(world, minLight, settings.isVanillaSpawnRulesEnabled()));
+    }
+
+    /**
+     * Hash of the values that is stable across restarts, unlike {@link #hashCode} with its enum identity hash.
+     */
+    public int fingerprint() {
+        return Objects.hash(horizontalRadius, verticalRadius, exclusionRadius, minLightLevel,
+                maxPathSearches, maxMicros, fallbackVerdict.ordinal(),
+                spawnRules.maxBlockLight(), spawnRules.maxSkyLight(), spawnRules.vanillaFloors());
+    }
+
+    public boolean fallbackSafe() {
+        return fallbackVerdict == FallbackVerdict.SAFE;
+    }
+}
@@ -0,0 +1,189 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runtime-switchable trace of individual bed checks.
+ * <p>
+ * Tracing is armed per player or per region with {@code /harderbeds trace}. Only checks
+ * matching a filter are recorded, into a fixed ring buffer of three longs per event:
+ * timestamp, event kind with an int value, and a packed position. Call sites guard on
+ * {@link #recording}, so a disarmed trace costs one static field read.
+ * Server thread only — worker threads never record.
+ */
+public final class BedCheckTrace {
+
+    public enum Event {
+        CHECK_BEGIN(true),      // pos: bed, value: player entity id
+        TRIVIALLY_SAFE(true),   // pos: bed
+        VILLAGE(true),          // pos: bed, value: 1 if inside a village
+        MONSTERS(false),        // value: monsters in the search box
+        ENCLOSED(true),         // pos: bed, value: open cells in the sealed room
+        CACHED_VERDICT(false),  // value: 1 safe, 0 unsafe
+        MOB_SCREENED(true),     // pos: mob, value: 1 stuck, 2 outside the box, 3 sealed off
+        MOB_PATH(true),         // pos: mob, value: node count, -1 without path
+        MOB_PATH_REUSED(true),  // pos: mob, value: 1 reachable, 0 not
+        CELLS(false),           // value: cells scanned
+        CANDIDATES(false),      // value: candidate count
+        REGIONS(false),         // value: connected regions among the candidates
+        DUMMY_PATH(true),       // pos: spawn floor, value: node count, -1 without path
+        DOOR_BLOCKED(true),     // pos: spawn floor
+        REACHABLE_FROM(true),   // pos: spawn floor, value: path length
+        SNAPSHOT_STALE(true),   // pos: bed, value: scan attempt
+        BUDGET_EXHAUSTED(false),// value: fallback verdict, 1 safe, 0 unsafe
+        VERDICT(false);         // value: 1 safe, 0 unsafe, third slot: elapsed microseconds
+
+        /** Whether the third slot is a packed {@link BlockPos} rather than a plain number. */
+        private final boolean positional;
+
+        Event(boolean positional) {
+            this.positional = positional;
+        }
+    }
+
+    private static final int CAPACITY = 8192;
+
+    private static final long[] TIMES = new long[CAPACITY];
+    private static final long[] KINDS = new long[CAPACITY];
+    private static final long[] POSITIONS = new long[CAPACITY];
+    private static int next = 0;
+    private static int size = 0;
+
+    private static final Set<UUID> PLAYERS = new HashSet<>();
+    private static final List<Region> REGIONS = new ArrayList<>();
+
+    /** True while a matching check is running; guard every {@link #record} call with it. */
+    public static boolean recording = false;
+    private static boolean armed = false;
+
+    private BedCheckTrace() {
+    }
+
+    /**
+     * Starts tracing a check if the player or the bed matches a filter.
+     *
+     * @return whether the check is traced; pass it to {@link #resume} for work done later
+     */
+    public static boolean begin(ServerLevel world, BlockPos bedPos, Player player) {
+        if (!armed) return false;
+        boolean traced = PLAYERS.contains(player.getUUID()) || inRegion(world.dimension(), bedPos);
+        recording = traced;
+        if (traced) record(Event.CHECK_BEGIN, player.getId(), bedPos.asLong());
+        return traced;
+    }
+
+    /**
+     * Continues recording for a check started earlier, e.g. an asynchronous one.
+     */
+    public static void resume(boolean traced) {
+        recording = traced && armed;
+    }
+
+    public static void pause() {
+        recording = false;
+    }
+
+    /**
+     * Records the verdict and stops recording.
+     */
+    public static void end(boolean safe, long startNanos) {
+        if (recording) record(Event.VERDICT, safe ? 1 : 0, (System.nanoTime() - startNanos) / 1000);
+        recording = false;
+    }
+
+    public static void record(Event event, int value, long pos) {
+        TIMES[next] = System.nanoTime();
+        KINDS[next] = ((long) event.ordinal() << 32) | (value & 0xFFFFFFFFL);
+        POSITIONS[next] = pos;
+        next = (next + 1) % CAPACITY;
+        if (size < CAPACITY) size++;
+    }
+
+    public static void tracePlayer(UUID player) {
+        PLAYERS.add(player);
+        armed = true;
+    }
+
+    public static void traceRegion(ResourceKey<Level> dimension, BlockPos center, int radius) {
+        REGIONS.add(new Region(dimension, center.getX(), center.getZ(), radius));
+        armed = true;
+    }
+
+    /**
+     * Disarms every filter. The recorded events stay until they are overwritten.
+     */
+    public static void disarm() {
+        PLAYERS.clear();
+        REGIONS.clear();
+        armed = false;
+        recording = false;
+    }
+
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Writes the buffered events, oldest first, as text into a new file in {@code directory}.
+     */
+    public static Path dump(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = directory.resolve("trace-" + stamp + ".log");
+
+        Event[] events = Event.values();
+        int first = (next - size + CAPACITY) % CAPACITY;
+        long origin = size == 0 ? 0 : TIMES[first];
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int n = 0; n < size; n++) {
+                int i = (first + n) % CAPACITY;
+                Event event = events[(int) (KINDS[i] >>> 32)];
+                int value = (int) KINDS[i];
+                long pos = POSITIONS[i];
+
+                String where = event.positional
+                        ? BlockPos.getX(pos) + " " + BlockPos.getY(pos) + " " + BlockPos.getZ(pos)
+                        : Long.toString(pos);
+                writer.write(String.format(Locale.ROOT, "%12.3fms %-15s %11d %s",
+                        (TIMES[i] - origin) / 1_000_000.0, event, value, where));
+                writer.newLine();
+            }
+        }
+        ModConfig.LOGGER.info("Wrote {} bed check trace events to {}", size, file);
+        return file;
+    }
+
+    private static boolean inRegion(ResourceKey<Level> dimension, BlockPos bedPos) {
+        for (Region region : REGIONS) {
+            if (region.dimension == dimension
+                    && Math.abs(bedPos.getX() - region.x) <= region.radius
+                    && Math.abs(bedPos.getZ() - region.z) <= region.radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Region(ResourceKey<Level> dimension, int x, int z, int radius) {
+    }
+}
@@ -0,0 +1,242 @@
+package harderbeds.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+/**
+ * Read-only copy of the chunk sections around a bed, safe to read from worker threads.
+ * <p>
+ * Captured on the server thread by copying each section's block palette and block light
+ * layer, and the sky light layer when the spawn rules of the dimension read it. Remembers the {@link SectionChangeTracker} version of every captured section so
+ * results computed from it can be thrown away once the real blocks change.
+ */
+public final class BedRegionSnapshot implements RegionView {
+
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+
+    private final ServerLevel world;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sectionsX, sectionsY, sectionsZ;
+
+    private final boolean[] loadedChunks;
+    private final PalettedContainer<BlockState>[] blockStates;
+    private final DataLayer[] blockLight;
+    /** Null unless sky light was captured. */
+    private final DataLayer[] skyLight;
+    private final int[] blockVersions;
+
+    @SuppressWarnings("unchecked")
+    private BedRegionSnapshot(ServerLevel world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                              boolean withSkyLight) {
+        this.world = world;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+
+        this.minSectionX = SectionPos.blockToSectionCoord(minX);
+        this.minSectionY = SectionPos.blockToSectionCoord(minY);
+        this.minSectionZ = SectionPos.blockToSectionCoord(minZ);
+        this.sectionsX = SectionPos.blockToSectionCoord(maxX) - minSectionX + 1;
+        this.sectionsY = SectionPos.blockToSectionCoord(maxY) - minSectionY + 1;
+        this.sectionsZ = SectionPos.blockToSectionCoord(maxZ) - minSectionZ + 1;
+
+        int sectionCount = sectionsX * sectionsY * sectionsZ;
+        this.loadedChunks = new boolean[sectionsX * sectionsZ];
+        this.blockStates = new PalettedContainer[sectionCount];
+        this.blockLight = new DataLayer[sectionCount];
+        this.skyLight = withSkyLight ? new DataLayer[sectionCount] : null;
+        this.blockVersions = new int[sectionCount];
+    }
+
+    /**
+     * Copies every loaded section intersecting the given inclusive block box. Server thread only.
+     *
+     * @param withSkyLight whether to copy sky light as well
+     */
+    public static BedRegionSnapshot capture(ServerLevel world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                            boolean withSkyLight) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, withSkyLight, CheckBudget.NO_DEADLINE);
+    }
+
+    /**
+     * Like {@link #capture(ServerLevel, int, int, int, int, int, int, boolean)}, giving up once the deadline passes.
+     *
+     * @throws CheckBudget.Exhausted if the deadline passes before every chunk is copied
+     */
+    public static BedRegionSnapshot capture(ServerLevel world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                            boolean withSkyLight, long deadline) {
+        BedRegionSnapshot snapshot = new BedRegionSnapshot(world, minX, minY, minZ, maxX, maxY, maxZ, withSkyLight);
+
+        for (int sx = 0; sx < snapshot.sectionsX; sx++) {
+            for (int sz = 0; sz < snapshot.sectionsZ; sz++) {
+                CheckBudget.checkDeadline(deadline);
+                int chunkX = snapshot.minSectionX + sx;
+                int chunkZ = snapshot.minSectionZ + sz;
+                LevelChunk chunk = world.getChunkSource().getChunkNow(chunkX, chunkZ);
+                if (chunk == null) continue;
+                snapshot.loadedChunks[sx * snapshot.sectionsZ + sz] = true;
+
+                for (int sy = 0; sy < snapshot.sectionsY; sy++) {
+                    int sectionY = snapshot.minSectionY + sy;
+                    int index = snapshot.sectionIndex(sx, sy, sz);
+                    snapshot.blockVersions[index] = SectionChangeTracker.getBlockVersion(world, chunkX, sectionY, chunkZ);
+
+                    int chunkSectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+                    if (chunkSectionIndex < 0 || chunkSectionIndex >= chunk.getSectionsCount()) continue;
+
+                    LevelChunkSection section = chunk.getSection(chunkSectionIndex);
+                    if (!section.hasOnlyAir()) {
+                        snapshot.blockStates[index] = section.getStates().copy();
+                    }
+
+                    DataLayer light = world.getLightEngine().getLayerListener(LightLayer.BLOCK)
+                            .getDataLayerData(SectionPos.of(chunkX, sectionY, chunkZ));
+                    if (light != null) {
+                        snapshot.blockLight[index] = light.copy();
+                    }
+
+                    if (withSkyLight) {
+                        SectionPos sectionPos = SectionPos.of(chunkX, sectionY, chunkZ);
+                        DataLayer sky = world.getLightEngine().getLayerListener(LightLayer.SKY).getDataLayerData(sectionPos);
+                        // Sections without a layer are uniformly lit; read their level once.
+                        snapshot.skyLight[index] = sky != null ? sky.copy()
+                                : new DataLayer(world.getBrightness(LightLayer.SKY, sectionPos.center()));
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Captures the bed's search box plus the margin the reachability field may walk through,
+     * with two extra layers on top for the air above the highest spawn floors.
+     */
+    public static BedRegionSnapshot captureAround(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        return captureAround(world, bedPos, bedPos, settings);
+    }
+
+    /**
+     * Like {@link #captureAround(ServerLevel, BlockPos, BedCheckSettings)}, giving up once the deadline passes.
+     *
+     * @throws CheckBudget.Exhausted if the deadline passes before every chunk is copied
+     */
+    public static BedRegionSnapshot captureAround(ServerLevel world, BlockPos bedPos, BedCheckSettings settings, long deadline) {
+        return captureAround(world, bedPos, bedPos, settings, deadline);
+    }
+
+    /**
+     * Like {@link #captureAround(ServerLevel, BlockPos, BedCheckSettings)}, for every bed in the
+     * box spanned by two corners at once — the volume of a batched check.
+     */
+    public static BedRegionSnapshot captureAround(ServerLevel world, BlockPos minBed, BlockPos maxBed, BedCheckSettings settings) {
+        return captureAround(world, minBed, maxBed, settings, CheckBudget.NO_DEADLINE);
+    }
+
+    private static BedRegionSnapshot captureAround(ServerLevel world, BlockPos minBed, BlockPos maxBed, BedCheckSettings settings,
+                                                   long deadline) {
+        int horizontal = settings.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN;
+        int vertical = settings.verticalRadius() + ReachabilityField.VERTICAL_MARGIN;
+        return capture(world,
+                minBed.getX() - horizontal, minBed.getY() - vertical, minBed.getZ() - horizontal,
+                maxBed.getX() + horizontal, maxBed.getY() + vertical + 2, maxBed.getZ() + horizontal,
+                settings.spawnRules().checksSkyLight(), deadline);
+    }
+
+    public ServerLevel getWorld() {
+        return world;
+    }
+
+    @Override
+    public int getMinX() { return minX; }
+    @Override
+    public int getMinY() { return minY; }
+    @Override
+    public int getMinZ() { return minZ; }
+    @Override
+    public int getMaxX() { return maxX; }
+    @Override
+    public int getMaxY() { return maxY; }
+    @Override
+    public int getMaxZ() { return maxZ; }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Whether the chunk holding this column was loaded when the snapshot was taken.
+     */
+    @Override
+    public boolean isLoaded(int x, int z) {
+        int sx = SectionPos.blockToSectionCoord(x) - minSectionX;
+        int sz = SectionPos.blockToSectionCoord(z) - minSectionZ;
+        if (sx < 0 || sx >= sectionsX || sz < 0 || sz >= sectionsZ) return false;
+        return loadedChunks[sx * sectionsZ + sz];
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        int index = sectionIndexAt(x, y, z);
+        if (index < 0) return AIR;
+        PalettedContainer<BlockState> states = blockStates[index];
+        return states == null ? AIR : states.get(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public int getBlockLight(int x, int y, int z) {
+        int index = sectionIndexAt(x, y, z);
+        if (index < 0) return 0;
+        DataLayer light = blockLight[index];
+        return light == null ? 0 : light.get(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public int getSkyLight(int x, int y, int z) {
+        if (skyLight == null) return 0;
+        int index = sectionIndexAt(x, y, z);
+        if (index < 0) return 0;
+        DataLayer light = skyLight[index];
+        return light == null ? 0 : light.get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * True if any captured section has been modified since the snapshot was taken. Server thread only.
+     */
+    public boolean isStale() {
+        for (int sx = 0; sx < sectionsX; sx++) {
+            for (int sz = 0; sz < sectionsZ; sz++) {
+                for (int sy = 0; sy < sectionsY; sy++) {
+                    int version = SectionChangeTracker.getBlockVersion(world,
+                            minSectionX + sx, minSectionY + sy, minSectionZ + sz);
+                    if (version != blockVersions[sectionIndex(sx, sy, sz)]) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int sectionIndexAt(int x, int y, int z) {
+        int sx = SectionPos.blockToSectionCoord(x) - minSectionX;
+        int sy = SectionPos.blockToSectionCoord(y) - minSectionY;
+        int sz = SectionPos.blockToSectionCoord(z) - minSectionZ;
+        if (sx < 0 || sx >= sectionsX || sy < 0 || sy >= sectionsY || sz < 0 || sz >= sectionsZ) return -1;
+        return sectionIndex(sx, sy, sz);
+    }
+
+    private int sectionIndex(int sx, int sy, int sz) {
+        return (sx * sectionsZ + sz) * sectionsY + sy;
+    }
+}
@@ -1,22 +1,20 @@
 package harderbeds.util;
 
-import harderbeds.Harderbeds;
 import harderbeds.config.ModConfig;
+import harderbeds.config.SpawnSearchMode;
 import harderbeds.util.CheckBedLocation;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
-import net.minecraft.core.particles.ParticleTypes;
 import net.minecraft.world.entity.*;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
-import net.minecraft.world.entity.EntitySpawnReason;
-import net.minecraft.world.entity.EntityType;
-import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
-import net.minecraft.world.entity.monster.zombie.Zombie;
+import net.minecraft.world.entity.ai.navigation.GroundPathNavigation;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.entity.ai.navigation.WallClimberNavigation;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.Biomes;
 import net.minecraft.world.level.block.DoorBlock;
@@ -24,59 +22,140 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.pathfinder.Node;
 import net.minecraft.world.level.pathfinder.Path;
 import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 
 public class BedSafetyChecker {
 
-    private static final int HORIZONTAL_SEARCH_RADIUS = 20;
-    private static final int VERTICAL_SEARCH_RADIUS = 10;
-    private static final int INNER_EXCLUSION_RADIUS = 3;
-    private static final int MIN_LIGHT_LEVEL = 8;
+    /** Ground walkers needed before a reachability field pays for itself as a screen. */
+    private static final int FIELD_SCREENING_MIN_WALKERS = 4;
 
+    private static final int SCREENED_STUCK = 1;
+    private static final int SCREENED_OUTSIDE_BOX = 2;
+    private static final int SCREENED_SEALED_OFF = 3;
 
     public static boolean isBedAllowed(Level world, BlockPos bedPos) {
-        if (CheckBedLocation.isWithinVillageStructure(world, bedPos)) {
-            if (Harderbeds.debug) System.out.println("[BedSafety] Beds within villages cannot be used.");
-            return false;
-        } else {
-            return true;
-        }
+        return !CheckBedLocation.isWithinVillageStructure(world, bedPos);
     }
 
     public static boolean isBedSafe(Level world, BlockPos bedPos, Player player) {
         if (world.isClientSide() || !(world instanceof ServerLevel serverWorld)) {
             return true;
         }
-        if (serverWorld.getDifficulty() == net.minecraft.world.Difficulty.PEACEFUL) {
+
+        long start = System.nanoTime();
+        BedCheckTrace.begin(serverWorld, bedPos, player);
+        boolean safe = evaluateBedSafety(serverWorld, bedPos, player);
+        BedCheckTrace.end(safe, start);
+        BedCheckMetrics.record(BedCheckMetrics.Phase.TOTAL, start);
+        BedCheckMetrics.verdict(safe);
+        return safe;
+    }
+
+    private static boolean evaluateBedSafety(ServerLevel serverWorld, BlockPos bedPos, Player player) {
+        if (isTriviallySafe(serverWorld, bedPos)) {
             return true;
         }
 
-        Holder<Biome> biomeEntry = world.getBiome(bedPos);
-        if (biomeEntry.is(Biomes.MUSHROOM_FIELDS)) {
-            if (Harderbeds.debug) System.out.println("[BedSafety] SAFE: Bed is in Mushroom Fields biome.");
+        BedCheckSettings settings = BedCheckSettings.forLevel(serverWorld);
+        CheckBudget budget = new CheckBudget(settings).resume();
+        List<Mob> nearbyMobs = findNearbyMonsters(serverWorld, bedPos, settings);
+
+        // --- Sealed room: nothing outside can walk in, nothing can spawn inside ---
+        if (EnclosureCheck.isSealed(serverWorld, bedPos, nearbyMobs, settings)) {
             return true;
         }
 
-        // --- Primary check: existing hostile mobs in the area ---
-        // Fast — no dummy mob, just check already-loaded entities.
-        // If any existing hostile mob can reach the bed, bail out immediately.
-        if (existingHostileMobCanReachBed(serverWorld, bedPos, player)) {
-            if (Harderbeds.debug) System.out.println("[BedSafety] UNSAFE: Existing hostile mob can reach the bed.");
-            return false;
+        // --- Cached terrain verdict: unchanged region ---
+        Boolean cachedVerdict = BedVerdictCache.lookup(serverWorld, bedPos, player.blockPosition(), settings);
+        if (cachedVerdict != null) {
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.CACHED_VERDICT, cachedVerdict ? 1 : 0, 0);
+            if (!cachedVerdict) return false;
         }
 
-        // --- Secondary check: potential spawn locations + dummy pathfinding ---
-        // Only reached when no currently-loaded mob poses a threat.
-        BlockPos potentialSpawnPos = findSpawnLocationAndPathing(serverWorld, bedPos, player);
-        if (potentialSpawnPos != null) {
-            if (Harderbeds.debug) System.out.println("[BedSafety] UNSAFE: Found a mob path to the player/bed from: " + potentialSpawnPos);
-            return false;
+        try {
+            // --- Primary check: existing hostile mobs in the area ---
+            // Fast — no dummy mob, just check already-loaded entities.
+            // If any existing hostile mob can reach the bed, bail out immediately.
+            // Runs on a safe cache hit too: mobs move without changing the region.
+            if (existingHostileMobCanReachBed(serverWorld, bedPos, player, nearbyMobs, settings, budget)) {
+                return false;
+            }
+            if (cachedVerdict != null) {
+                return true;
+            }
+
+            // --- Secondary check: potential spawn locations + dummy pathfinding ---
+            // Only reached when no currently-loaded mob poses a threat.
+            boolean safe = findSpawnLocationAndPathing(serverWorld, bedPos, player, settings, budget) == null;
+            BedVerdictCache.put(serverWorld, bedPos, player.blockPosition(), safe, settings);
+            return safe;
+        } catch (CheckBudget.Exhausted e) {
+            // --- Budget ran out before the check could answer ---
+            return budgetFallback(settings);
         }
+    }
+
+    /**
+     * Warms the caches for a bed nobody is using right now: the sealed-room answer, or else the
+     * terrain verdict of the flood-fill secondary check. There is no player, so the walk only
+     * targets the bed and no existing mob is checked — a click checks those on top of the
+     * cached terrain verdict, and walks again if where its player stands could change it.
+     * Called by {@link PlacedBedTracker}.
+     */
+    static void precompute(ServerLevel world, BlockPos bedPos) {
+        if (isTriviallySafe(world, bedPos)) return;
+
+        BedCheckSettings settings = BedCheckSettings.forLevel(world);
+        if (BedVerdictCache.hasFreshVerdict(world, bedPos, settings)) return;
+        if (EnclosureCheck.isSealed(world, bedPos, List.of(), settings)) return;
+
+        BedRegionSnapshot snapshot = BedRegionSnapshot.captureAround(world, bedPos, settings);
+        long shuffleSeed = world.getRandom().nextLong();
+        int maxFallDistance = ReachabilityField.maxFallDistance(world.getDifficulty());
+        long[] path = ModConfig.getSettings().isParallelCandidateSearchEnabled()
+                ? ParallelCandidateSearch.findReachableSpawn(snapshot, bedPos, bedPos, shuffleSeed, settings, maxFallDistance)
+                : findReachableSpawn(snapshot, bedPos, bedPos,
+                        SpawnCandidateScanner.scan(snapshot, bedPos, shuffleSeed, settings), maxFallDistance);
+        BedVerdictCache.put(world, bedPos, bedPos, path == null, settings);
+    }
 
-        if (Harderbeds.debug) System.out.println("[BedSafety] SAFE: No threats found near the bed.");
-        return true;
+    /**
+     * Verdict for a check that ran out of path searches or time. Never cached.
+     */
+    static boolean budgetFallback(BedCheckSettings settings) {
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.BUDGET_EXHAUSTED);
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.BUDGET_EXHAUSTED, settings.fallbackSafe() ? 1 : 0, 0);
+        return settings.fallbackSafe();
+    }
+
+
+    /**
+     * Cheap checks that make a bed safe without looking at terrain or entities.
+     */
+    static boolean isTriviallySafe(ServerLevel world, BlockPos bedPos) {
+        long start = System.nanoTime();
+        try {
+            if (world.getDifficulty() == net.minecraft.world.Difficulty.PEACEFUL) {
+                return true;
+            }
+
+            Holder<Biome> biomeEntry = world.getBiome(bedPos);
+            if (biomeEntry.is(Biomes.MUSHROOM_FIELDS)) {
+                if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.TRIVIALLY_SAFE, 0, bedPos.asLong());
+                return true;
+            }
+            return false;
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.TRIVIAL_CHECK, start);
+        }
     }
 
 
@@ -84,30 +163,151 @@ public class BedSafetyChecker {
     // Primary check — existing hostile mobs
     // -------------------------------------------------------------------------
 
-    private static boolean existingHostileMobCanReachBed(ServerLevel world, BlockPos bedPos, Player player) {
-        AABB searchBox = new AABB(
-                bedPos.getX() - HORIZONTAL_SEARCH_RADIUS,
-                bedPos.getY() - VERTICAL_SEARCH_RADIUS,
-                bedPos.getZ() - HORIZONTAL_SEARCH_RADIUS,
-                bedPos.getX() + HORIZONTAL_SEARCH_RADIUS,
-                bedPos.getY() + VERTICAL_SEARCH_RADIUS,
-                bedPos.getZ() + HORIZONTAL_SEARCH_RADIUS
-        );
+    /**
+     * All live monsters inside the search box around the bed.
+     */
+    static List<Mob> findNearbyMonsters(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        List<Mob> monsters = findMonstersIn(world, searchBox(bedPos, settings));
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.MONSTERS, monsters.size(), 0);
+        return monsters;
+    }
 
-        List<Mob> nearbyMobs = world.getEntitiesOfClass(Mob.class, searchBox,
+    /**
+     * All live monsters inside an arbitrary box, e.g. the union of several beds' search boxes.
+     */
+    static List<Mob> findMonstersIn(ServerLevel world, AABB box) {
+        long start = System.nanoTime();
+        List<Mob> monsters = world.getEntitiesOfClass(Mob.class, box,
                 mob -> mob.isAlive() && mob instanceof net.minecraft.world.entity.monster.Monster);
+        BedCheckMetrics.record(BedCheckMetrics.Phase.ENTITY_SCAN, start);
+        return monsters;
+    }
 
-        for (Mob mob : nearbyMobs) {
-            Path path = mob.getNavigation().createPath(player, 0);
-            if (isPathViable(path, bedPos, world)) {
-                if (Harderbeds.debug) System.out.println("[BedSafety] Existing mob at " + mob.blockPosition() + " can reach the bed.");
-                if (ModConfig.getSettings().isMobPathVisualizationEnabled()) {
-                    spawnPathParticles(path, mob);
+    static AABB searchBox(BlockPos bedPos, BedCheckSettings settings) {
+        return new AABB(
+                bedPos.getX() - settings.horizontalRadius(),
+                bedPos.getY() - settings.verticalRadius(),
+                bedPos.getZ() - settings.horizontalRadius(),
+                bedPos.getX() + settings.horizontalRadius(),
+                bedPos.getY() + settings.verticalRadius(),
+                bedPos.getZ() + settings.horizontalRadius()
+        );
+    }
+
+    /**
+     * True if a live monster can walk to the bed.
+     * <p>
+     * Mobs that cannot be a threat are screened out first, the rest are tried nearest first,
+     * and a mob whose last search is still valid in {@link MobPathCache} is not searched again.
+     *
+     * @throws CheckBudget.Exhausted if the budget runs out before every mob is answered
+     */
+    static boolean existingHostileMobCanReachBed(ServerLevel world, BlockPos bedPos, Player player, List<Mob> nearbyMobs,
+                                                 BedCheckSettings settings, CheckBudget budget) {
+        if (nearbyMobs.isEmpty()) return false;
+
+        long start = System.nanoTime();
+        try {
+            List<Mob> contenders = screenMobs(world, bedPos, player, nearbyMobs, settings, budget);
+            if (contenders.isEmpty()) return false;
+
+            BlockPos targetPos = player.blockPosition();
+            long regionHash = BedVerdictCache.regionHash(world, bedPos, settings);
+            for (Mob mob : contenders) {
+                MobPathCache.Entry cached = MobPathCache.lookup(world, mob, bedPos, targetPos, regionHash);
+                if (cached != null) {
+                    BedCheckMetrics.increment(BedCheckMetrics.Counter.MOB_PATHS_REUSED);
+                    if (BedCheckTrace.recording) {
+                        BedCheckTrace.record(BedCheckTrace.Event.MOB_PATH_REUSED, cached.reachable() ? 1 : 0, mob.blockPosition().asLong());
+                    }
+                    if (!cached.reachable()) continue;
+                    if (ModConfig.getSettings().isMobPathVisualizationEnabled()) {
+                        PathOverlay.show(world, player, cached.nodes());
+                    }
+                    return true;
+                }
+
+                budget.claimSearch();
+                Path path = mob.getNavigation().createPath(player, 0);
+                BedCheckMetrics.increment(BedCheckMetrics.Counter.PATHS_COMPUTED);
+                if (BedCheckTrace.recording) {
+                    BedCheckTrace.record(BedCheckTrace.Event.MOB_PATH, path == null ? -1 : path.getNodeCount(), mob.blockPosition().asLong());
+                }
+                boolean viable = isPathViable(path, bedPos, world);
+                MobPathCache.put(world, mob, bedPos, targetPos, regionHash, viable ? nodesOf(path) : null);
+                if (viable) {
+                    if (ModConfig.getSettings().isMobPathVisualizationEnabled()) {
+                        PathOverlay.show(world, player, nodesOf(path));
+                    }
+                    return true;
                 }
-                return true;
             }
+            return false;
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.MOB_PATHS, start);
         }
-        return false;
+    }
+
+    /**
+     * Drops mobs that cannot be a threat and orders the rest by distance to the bed.
+     * <p>
+     * Without AI a mob does not chase anyone. A monster riding another mob is carried along
+     * the path its mount walks — a chicken jockey steers its chicken — so the mount is
+     * searched in its place; one in a boat or minecart goes nowhere. Leashed mobs are
+     * searched like any other, since a leash can break. A mob whose position left the
+     * search box since the entity query is out of scope. With flood-fill
+     * reachability and enough mobs to pay for it, one field also drops the adult-sized
+     * ground walkers that are sealed off from the bed — flyers, climbers and small mobs
+     * move in ways the field does not model, so they always get a real search.
+     */
+    private static List<Mob> screenMobs(ServerLevel world, BlockPos bedPos, Player player, List<Mob> nearbyMobs,
+                                        BedCheckSettings settings, CheckBudget budget) {
+        AABB searchBox = searchBox(bedPos, settings);
+        List<Mob> contenders = new ArrayList<>(nearbyMobs.size());
+        Set<Mob> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int walkers = 0;
+        for (Mob rider : nearbyMobs) {
+            Mob mob = rider.isPassenger() && rider.getVehicle() instanceof Mob mount ? mount : rider;
+            if (!rider.isAlive() || rider.isNoAi() || !mob.isAlive() || mob.isNoAi() || (mob == rider && mob.isPassenger())) {
+                screenedOut(rider, SCREENED_STUCK);
+            } else if (!searchBox.contains(mob.position())) {
+                screenedOut(rider, SCREENED_OUTSIDE_BOX);
+            } else if (seen.add(mob)) {
+                contenders.add(mob);
+                if (walksLikeField(mob)) walkers++;
+            }
+        }
+
+        if (walkers >= FIELD_SCREENING_MIN_WALKERS && ModConfig.getSettings().isFloodFillReachabilityEnabled()) {
+            long deadline = budget.deadline();
+            ReachabilityField field = ReachabilityField.compute(BedRegionSnapshot.captureAround(world, bedPos, settings, deadline),
+                    bedPos, player.blockPosition(), ReachabilityField.maxFallDistance(world.getDifficulty()), deadline);
+            BedCheckMetrics.increment(BedCheckMetrics.Counter.FIELDS_COMPUTED);
+            contenders.removeIf(mob -> {
+                BlockPos feet = mob.blockPosition();
+                if (!walksLikeField(mob) || field.isReachable(feet.getX(), feet.getY(), feet.getZ())) return false;
+                screenedOut(mob, SCREENED_SEALED_OFF);
+                return true;
+            });
+        }
+
+        Vec3 bedCenter = Vec3.atCenterOf(bedPos);
+        contenders.sort(Comparator.comparingDouble(mob -> mob.distanceToSqr(bedCenter)));
+        return contenders;
+    }
+
+    /**
+     * True for mobs that move the way {@link ReachabilityField} assumes: on the ground, two blocks tall.
+     */
+    private static boolean walksLikeField(Mob mob) {
+        PathNavigation navigation = mob.getNavigation();
+        return navigation instanceof GroundPathNavigation && !(navigation instanceof WallClimberNavigation)
+                && mob.getBbHeight() > 1.0F && mob.getBbWidth() <= 1.0F;
+    }
+
+    private static void screenedOut(Mob mob, int reason) {
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.MOBS_SCREENED);
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.MOB_SCREENED, reason, mob.blockPosition().asLong());
     }
 
 
@@ -115,118 +315,208 @@ public class BedSafetyChecker {
     // Secondary check — potential spawn locations + dummy pathfinding
     // -------------------------------------------------------------------------
 
-    private static BlockPos findSpawnLocationAndPathing(ServerLevel world, BlockPos bedPos, Player player) {
-        RandomSource random = world.getRandom();
+    /**
+     * @return a spawn floor a monster could walk to the bed from, or null if there is none
+     * @throws CheckBudget.Exhausted if the budget runs out before every candidate is answered
+     */
+    private static BlockPos findSpawnLocationAndPathing(ServerLevel world, BlockPos bedPos, Player player,
+                                                        BedCheckSettings settings, CheckBudget budget) {
+        ModConfig.HarderBedsSettings config = ModConfig.getSettings();
+        if (config.isFloodFillReachabilityEnabled() && config.isParallelCandidateSearchEnabled()) {
+            return findReachableCandidateInParallel(world, bedPos, player, settings, budget);
+        }
 
-        int horizontalRange = (HORIZONTAL_SEARCH_RADIUS * 2) + 1;
-        int verticalRange   = (VERTICAL_SEARCH_RADIUS   * 2) + 1;
+        // Only real candidates from the per-section index — no full rescan of the box.
+        long scanStart = System.nanoTime();
+        LongArrayList candidates = SpawnCandidateIndex.collect(world, bedPos, world.getRandom(), settings);
+        BedCheckMetrics.record(BedCheckMetrics.Phase.CANDIDATE_SCAN, scanStart);
+        BedCheckMetrics.add(BedCheckMetrics.Counter.CANDIDATES_FOUND, candidates.size());
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.CANDIDATES, candidates.size(), 0);
 
-        // Build all (x, z) pairs as a flat list, then shuffle that list so pairs stay correlated.
-        int totalPairs = horizontalRange * horizontalRange;
-        int[] xzPairs = new int[totalPairs * 2];
-        int idx = 0;
-        for (int dx = -HORIZONTAL_SEARCH_RADIUS; dx <= HORIZONTAL_SEARCH_RADIUS; dx++) {
-            for (int dz = -HORIZONTAL_SEARCH_RADIUS; dz <= HORIZONTAL_SEARCH_RADIUS; dz++) {
-                xzPairs[idx++] = bedPos.getX() + dx;
-                xzPairs[idx++] = bedPos.getZ() + dz;
-            }
+        long pathStart = System.nanoTime();
+        try {
+            return findReachableCandidate(world, bedPos, player, candidates, settings, budget);
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.SPAWN_PATHS, pathStart);
         }
-        shufflePairs(xzPairs, totalPairs, random);
-
-        // Search top-to-bottom to prefer higher spawn locations.
-        int topY    = bedPos.getY() + VERTICAL_SEARCH_RADIUS;
-        int bottomY = bedPos.getY() - VERTICAL_SEARCH_RADIUS;
+    }
 
-        for (int y = topY; y >= bottomY; y--) {
-            if (Math.abs(y - bedPos.getY()) <= INNER_EXCLUSION_RADIUS) continue;
+    private static BlockPos findReachableCandidate(ServerLevel world, BlockPos bedPos, Player player, LongArrayList candidates,
+                                                   BedCheckSettings settings, CheckBudget budget) {
+        if (ModConfig.getSettings().isFloodFillReachabilityEnabled()) {
+            budget.claimSearch();
+            long deadline = budget.deadline();
+            BedRegionSnapshot snapshot = BedRegionSnapshot.captureAround(world, bedPos, settings, deadline);
+            long[] path = findReachableSpawn(snapshot, bedPos, player.blockPosition(), candidates,
+                    ReachabilityField.maxFallDistance(world.getDifficulty()), deadline);
+            return spawnFloorOf(world, player, path);
+        }
 
-            for (int p = 0; p < totalPairs; p++) {
-                int x = xzPairs[p * 2];
-                int z = xzPairs[p * 2 + 1];
+        SpawnSearchMode searchMode = ModConfig.getSettings().getSpawnSearchMode();
+        if (searchMode == SpawnSearchMode.REGION) {
+            BedRegionSnapshot snapshot = BedRegionSnapshot.captureAround(world, bedPos, settings, budget.deadline());
+            candidates = candidatesToPathfind(snapshot, candidates, bedPos, searchMode);
+        }
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.REGIONS, candidates.size(), 0);
+        for (int i = 0; i < candidates.size(); i++) {
+            budget.claimSearch();
+            BlockPos testPos = BlockPos.of(candidates.getLong(i));
+            if (canMobReachBedViaDummy(world, testPos, bedPos, player)) {
+                return testPos;
+            }
+        }
+        return null;
+    }
 
-                if (Math.abs(x - bedPos.getX()) <= INNER_EXCLUSION_RADIUS &&
-                        Math.abs(z - bedPos.getZ()) <= INNER_EXCLUSION_RADIUS) {
-                    continue;
-                }
 
-                BlockPos.MutableBlockPos testPos = new BlockPos.MutableBlockPos(x, y, z);
+    /**
+     * Flood-fill secondary check on a fresh snapshot with {@link ParallelCandidateSearch}.
+     * Falls back to the sequential scan of the same snapshot if the pool fails.
+     */
+    private static BlockPos findReachableCandidateInParallel(ServerLevel world, BlockPos bedPos, Player player,
+                                                             BedCheckSettings settings, CheckBudget budget) {
+        budget.claimSearch();
+        long deadline = budget.deadline();
+        BedRegionSnapshot snapshot = BedRegionSnapshot.captureAround(world, bedPos, settings, deadline);
+        long shuffleSeed = world.getRandom().nextLong();
+        int maxFallDistance = ReachabilityField.maxFallDistance(world.getDifficulty());
+
+        long pathStart = System.nanoTime();
+        long[] path;
+        try {
+            path = ParallelCandidateSearch.findReachableSpawn(snapshot, bedPos, player.blockPosition(), shuffleSeed,
+                    settings, maxFallDistance, deadline);
+        } catch (IllegalStateException e) {
+            ModConfig.LOGGER.error("Parallel candidate search failed, scanning sequentially.", e);
+            path = findReachableSpawn(snapshot, bedPos, player.blockPosition(),
+                    SpawnCandidateScanner.scan(snapshot, bedPos, shuffleSeed, settings), maxFallDistance, deadline);
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.SPAWN_PATHS, pathStart);
+        }
+        return spawnFloorOf(world, player, path);
+    }
 
-                if (!world.hasChunkAt(testPos)) continue;
-                if (world.getBlockState(testPos).isAir()) continue;
-                if (!world.getBlockState(testPos).isRedstoneConductor(world, testPos)) continue;
+    /**
+     * Traces and shows a flood-fill walk and returns the spawn floor it starts from, or null without walk.
+     */
+    private static BlockPos spawnFloorOf(ServerLevel world, Player player, long[] path) {
+        if (path == null) return null;
 
-                BlockPos abovePos    = testPos.above();
-                BlockPos twoAbovePos = testPos.above(2);
+        if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.REACHABLE_FROM, path.length, BlockPos.offset(path[0], 0, -1, 0));
+        if (ModConfig.getSettings().isMobPathVisualizationEnabled()) {
+            PathOverlay.show(world, player, path);
+        }
+        // The walk starts at the mob's feet, one block above the spawn floor.
+        return BlockPos.of(path[0]).below();
+    }
 
-                if (!world.getBlockState(abovePos).isAir())    continue;
-                if (!world.getBlockState(twoAbovePos).isAir()) continue;
-                if (world.getBrightness(LightLayer.BLOCK, abovePos) >= MIN_LIGHT_LEVEL) continue;
 
-                if (Harderbeds.debug) System.out.println("[SpawnLoc] Potential spawn at " + testPos +
-                        " (dx=" + Math.abs(x - bedPos.getX()) +
-                        ", dy=" + Math.abs(y - bedPos.getY()) +
-                        ", dz=" + Math.abs(z - bedPos.getZ()) + ")");
+    /**
+     * Flood-fill variant of the secondary check: one reachability field for the whole box,
+     * then one lookup per candidate. Reads only the snapshot, so it is safe on worker threads.
+     *
+     * @return the walk from the first reachable candidate to the bed, or null if none is reachable
+     */
+    static long[] findReachableSpawn(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, LongArrayList candidates, int maxFallDistance) {
+        return findReachableSpawn(snapshot, bedPos, targetPos, candidates, maxFallDistance, CheckBudget.NO_DEADLINE);
+    }
 
-                if (canMobReachBedViaDummy(world, testPos.immutable(), bedPos, player)) {
-                    if (Harderbeds.debug) System.out.println("[BedSafety] UNSAFE: Dummy mob can reach bed from " + testPos);
-                    return testPos.immutable();
-                }
+    /**
+     * Like {@link #findReachableSpawn(RegionView, BlockPos, BlockPos, LongArrayList, int)}, giving up once the deadline passes.
+     *
+     * @throws CheckBudget.Exhausted if the deadline passes before the field is complete
+     */
+    static long[] findReachableSpawn(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, LongArrayList candidates,
+                                     int maxFallDistance, long deadline) {
+        ReachabilityField field = ReachabilityField.compute(snapshot, bedPos, targetPos, maxFallDistance, deadline);
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.FIELDS_COMPUTED);
+
+        for (int i = 0; i < candidates.size(); i++) {
+            long floor = candidates.getLong(i);
+            int x = BlockPos.getX(floor), y = BlockPos.getY(floor) + 1, z = BlockPos.getZ(floor);
+            if (field.isReachable(x, y, z)) {
+                return field.pathFrom(x, y, z);
             }
         }
         return null;
     }
 
 
-    // -------------------------------------------------------------------------
-    // Dummy-mob pathfinding (secondary check only)
-    // -------------------------------------------------------------------------
-
-    private static boolean canMobReachBedViaDummy(ServerLevel world, BlockPos start, BlockPos target, Player player) {
-
+    /**
+     * Batched flood-fill check for beds whose search boxes overlap: one candidate scan over
+     * the union, one shared reachability field, then one lookup per candidate for all beds
+     * at once. Only beds found unsafe get a field of their own, to recover the walk.
+     * Reads only the snapshot, so it is safe on worker threads.
+     *
+     * @return per bed the walk from a reachable candidate, or null if the bed is safe
+     */
+    static long[][] findReachableSpawns(RegionView snapshot, BlockPos[] bedPositions, BlockPos[] targetPositions,
+                                        BedCheckSettings settings, int maxFallDistance) {
+        LongArrayList masks = new LongArrayList();
+        LongArrayList candidates = SpawnCandidateScanner.scanShared(snapshot, bedPositions, settings, masks);
+
+        ReachabilityField shared = ReachabilityField.computeShared(snapshot, bedPositions, targetPositions, maxFallDistance);
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.FIELDS_COMPUTED);
+
+        long unsafe = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            long floor = candidates.getLong(i);
+            unsafe |= masks.getLong(i) & shared.reachableMask(BlockPos.getX(floor), BlockPos.getY(floor) + 1, BlockPos.getZ(floor));
+        }
 
-        EntityType<Zombie> zombieType = (EntityType<Zombie>)
-                net.minecraft.core.registries.BuiltInRegistries.ENTITY_TYPE
-                        .getValue(net.minecraft.resources.Identifier.withDefaultNamespace("zombie"));
-        Mob dummyMob = new Zombie(zombieType, world);
+        long[][] paths = new long[bedPositions.length][];
+        for (int bed = 0; bed < bedPositions.length; bed++) {
+            if ((unsafe & (1L << bed)) == 0) continue;
+            LongArrayList own = new LongArrayList();
+            for (int i = 0; i < candidates.size(); i++) {
+                if ((masks.getLong(i) & (1L << bed)) != 0) own.add(candidates.getLong(i));
+            }
+            paths[bed] = findReachableSpawn(snapshot, bedPositions[bed], targetPositions[bed], own, maxFallDistance);
+        }
+        return paths;
+    }
 
-        try {
-            dummyMob.setSilent(true);
-            dummyMob.setInvisible(true);
-            dummyMob.getNavigation().setCanFloat(true);
-            dummyMob.setPosRaw(start.getX() + 0.5, start.getY(), start.getZ() + 0.5);
 
-            // finalizeSpawn without adding to world — sets up internal state needed for navigation.
-            dummyMob.finalizeSpawn(world, world.getCurrentDifficultyAt(start), EntitySpawnReason.COMMAND, null);
+    /**
+     * The candidates the dummy pathfinder should try, in order. In {@link SpawnSearchMode#REGION}
+     * mode only one per connected dark region is kept.
+     */
+    static LongArrayList candidatesToPathfind(RegionView view, LongArrayList candidates, BlockPos bedPos, SpawnSearchMode mode) {
+        if (mode != SpawnSearchMode.REGION) return candidates;
+        return SpawnCandidateRegions.representatives(view, candidates, bedPos);
+    }
 
-            dummyMob.setTarget(player);
-            dummyMob.tick();
-            dummyMob.tick();
 
-            Path path = dummyMob.getNavigation().createPath(player, 0);
+    // -------------------------------------------------------------------------
+    // Dummy-mob pathfinding (secondary check only)
+    // -------------------------------------------------------------------------
 
-            if (path == null || path.getNodeCount() < 2) {
-                if (Harderbeds.debug) System.out.println("[PathCheck] Path null or too short.");
-                return false;
-            }
+    static boolean canMobReachBedViaDummy(ServerLevel world, BlockPos start, BlockPos target, Player player) {
+        // Pooled per level — re-positioned for each candidate, never ticked or added to the world.
+        Mob dummyMob = DummyNavigatorPool.acquire(world, start);
+        dummyMob.setTarget(player);
 
-            if (pathContainsBlockingDoor(path, world)) {
-                if (Harderbeds.debug) System.out.println("[PathCheck] Path blocked by closed door.");
-                return false;
-            }
+        Path path = dummyMob.getNavigation().createPath(player, 0);
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.PATHS_COMPUTED);
+        if (BedCheckTrace.recording) {
+            BedCheckTrace.record(BedCheckTrace.Event.DUMMY_PATH, path == null ? -1 : path.getNodeCount(), start.asLong());
+        }
 
-            boolean reachable = isPathViable(path, target, world);
+        if (path == null || path.getNodeCount() < 2) {
+            return false;
+        }
 
-            if (reachable && ModConfig.getSettings().isMobPathVisualizationEnabled()) {
-                spawnPathParticles(path, dummyMob);
-            }
+        if (pathContainsBlockingDoor(path, world)) {
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.DOOR_BLOCKED, 0, start.asLong());
+            return false;
+        }
 
-            if (Harderbeds.debug) System.out.println("[PathCheck] Path reaches target: " + reachable);
-            return reachable;
+        boolean reachable = isPathViable(path, target, world);
 
-        } finally {
-            // Always clean up the dummy mob, whether we return true or false.
-            dummyMob.discard();
+        if (reachable && ModConfig.getSettings().isMobPathVisualizationEnabled()) {
+            PathOverlay.show(world, player, nodesOf(path));
         }
+        return reachable;
     }
 
 
@@ -266,7 +556,7 @@ public class BedSafetyChecker {
      * Shuffles (x, z) coordinate pairs in the flat array without breaking pair correlation.
      * Each "pair" occupies two consecutive slots: [x0, z0, x1, z1, ...].
      */
-    private static void shufflePairs(int[] array, int pairCount, RandomSource random) {
+    static void shufflePairs(int[] array, int pairCount, RandomSource random) {
         for (int i = pairCount - 1; i > 0; i--) {
             int j = random.nextInt(i + 1);
             // Swap pair i with pair j
@@ -279,21 +569,12 @@ public class BedSafetyChecker {
         }
     }
 
-    private static void spawnPathParticles(Path path, LivingEntity entity) {
-        ServerLevel serverWorld = (ServerLevel) entity.level();
-
-        Node endNode = path.getEndNode();
-        BlockPos endPos = new BlockPos(endNode.x, endNode.y, endNode.z);
-        serverWorld.sendParticles(ParticleTypes.FLAME,
-                endPos.getX() + 0.5, endPos.getY() + 0.5, endPos.getZ() + 0.5,
-                30, 0.2, 0.2, 0.2, 0.0);
-
+    private static long[] nodesOf(Path path) {
+        long[] nodes = new long[path.getNodeCount()];
         for (int i = 0; i < path.getNodeCount(); i++) {
             Node node = path.getNode(i);
-            BlockPos nodePos = new BlockPos(node.x, node.y, node.z);
-            serverWorld.sendParticles(ParticleTypes.SOUL_FIRE_FLAME,
-                    nodePos.getX() + 0.5, nodePos.getY() + 0.5, nodePos.getZ() + 0.5,
-                    20, 0.1, 0.1, 0.1, 0.0);
+            nodes[i] = BlockPos.asLong(node.x, node.y, node.z);
         }
+        return nodes;
     }
-}
\ No newline at end of file
+}
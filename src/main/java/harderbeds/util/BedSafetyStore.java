@@ -0,0 +1,390 @@
+package harderbeds.util;
+
+import harderbeds.Harderbeds;
+import harderbeds.config.ModConfig;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.storage.LevelResource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps village membership and terrain verdicts of beds across restarts.
+ * <p>
+ * Entries are keyed by packed bed position and sharded into one small binary file per
+ * dimension and 512-block region, {@code <world>/harderbeds/<namespace>/<path>/r.<x>.<z>.bin}.
+ * A region file is read the first time a bed in it is looked up and rewritten on
+ * {@link #flush} only if one of its entries changed. Village bits are written together
+ * with {@link VillageStructureSet#fingerprint} and dropped when the set of village
+ * structures has changed since.
+ * <p>
+ * Section versions start over at 0 every session, so a verdict read from disk cannot be
+ * matched by region hash. It is trusted only while no block around the bed has changed
+ * since the server started, and from then on held against the region hash like any cached
+ * verdict. Regions near a block change are revalidated before they are written, dropping
+ * verdicts that no longer hold. Server thread only.
+ */
+public final class BedSafetyStore {
+
+    private static final int MAGIC = 0x48424453; // "HBDS"
+    private static final int FORMAT = 1;
+    private static final int REGION_SHIFT = 9;
+    private static final int MAX_ENTRIES_PER_REGION = 4096;
+    /** How far a block change can reach into a check volume: the widest radius, the walk margin and a light radius. */
+    private static final int MAX_REACH = 64 + ReachabilityField.HORIZONTAL_MARGIN + 16;
+
+    private static final byte VILLAGE_KNOWN = 1;
+    private static final byte IN_VILLAGE = 2;
+    private static final byte VERDICT_KNOWN = 4;
+    private static final byte SAFE = 8;
+
+    private static final Map<ServerLevel, LevelStore> STORES = new WeakHashMap<>();
+    /** Regions near a block change since the last flush, per level. */
+    private static final Map<ServerLevel, LongOpenHashSet> TOUCHED = new WeakHashMap<>();
+
+    private BedSafetyStore() {
+    }
+
+    // --- Village membership ---
+
+    /**
+     * Returns the stored village membership of the position, or null if it is not known.
+     */
+    public static Boolean village(ServerLevel world, BlockPos pos) {
+        if (VillageStructureSet.fingerprint() == 0) return null;
+        Entry entry = region(world, pos).beds.get(pos.asLong());
+        if (entry == null || (entry.flags & VILLAGE_KNOWN) == 0) return null;
+        return (entry.flags & IN_VILLAGE) != 0;
+    }
+
+    public static void recordVillage(ServerLevel world, BlockPos pos, boolean inVillage) {
+        if (VillageStructureSet.fingerprint() == 0) return;
+        Region region = region(world, pos);
+        Entry entry = region.entry(pos.asLong());
+        if (entry == null) return;
+
+        byte flags = (byte) ((entry.flags & ~IN_VILLAGE) | VILLAGE_KNOWN | (inVillage ? IN_VILLAGE : 0));
+        if (flags != entry.flags) {
+            entry.flags = flags;
+            region.dirty = true;
+        }
+    }
+
+    // --- Terrain verdicts ---
+
+    /**
+     * Returns the stored terrain verdict of the bed if it still holds, or null. Drops it if it does not.
+     */
+    static Boolean restoreVerdict(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        Region region = region(world, bedPos);
+        Entry entry = region.beds.get(bedPos.asLong());
+        if (entry == null || (entry.flags & VERDICT_KNOWN) == 0) return null;
+
+        if (!isCurrent(world, bedPos, entry, settings)) {
+            entry.flags &= ~(VERDICT_KNOWN | SAFE);
+            region.dirty = true;
+            return null;
+        }
+        return (entry.flags & SAFE) != 0;
+    }
+
+    /**
+     * Stores the terrain verdict of the bed, anchored to the region hash it was computed at.
+     */
+    static void recordVerdict(ServerLevel world, BlockPos bedPos, boolean safe, BedCheckSettings settings, long regionHash) {
+        Region region = region(world, bedPos);
+        Entry entry = region.entry(bedPos.asLong());
+        if (entry == null) return;
+
+        byte flags = (byte) ((entry.flags & ~SAFE) | VERDICT_KNOWN | (safe ? SAFE : 0));
+        int fingerprint = settings.fingerprint();
+        if (flags != entry.flags || fingerprint != entry.settingsFingerprint) {
+            entry.flags = flags;
+            entry.settingsFingerprint = fingerprint;
+            region.dirty = true;
+        }
+        entry.regionHash = regionHash;
+        entry.anchored = true;
+    }
+
+    /**
+     * Called from {@link SectionChangeTracker#onBlockChanged} for every block change on the server.
+     */
+    static void onBlockChanged(ServerLevel world, BlockPos pos) {
+        int minRegionX = (pos.getX() - MAX_REACH) >> REGION_SHIFT;
+        int maxRegionX = (pos.getX() + MAX_REACH) >> REGION_SHIFT;
+        int minRegionZ = (pos.getZ() - MAX_REACH) >> REGION_SHIFT;
+        int maxRegionZ = (pos.getZ() + MAX_REACH) >> REGION_SHIFT;
+        synchronized (TOUCHED) {
+            LongOpenHashSet touched = TOUCHED.computeIfAbsent(world, level -> new LongOpenHashSet());
+            for (int regionX = minRegionX; regionX <= maxRegionX; regionX++) {
+                for (int regionZ = minRegionZ; regionZ <= maxRegionZ; regionZ++) {
+                    touched.add(regionKey(regionX, regionZ));
+                }
+            }
+        }
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Revalidates regions near block changes and writes every region with changed entries.
+     */
+    public static void flush() {
+        synchronized (TOUCHED) {
+            // Changes near beds that were stored in an earlier session but not looked up in this one.
+            for (ServerLevel world : TOUCHED.keySet()) {
+                STORES.computeIfAbsent(world, LevelStore::new);
+            }
+        }
+        for (Map.Entry<ServerLevel, LevelStore> levelEntry : STORES.entrySet()) {
+            ServerLevel world = levelEntry.getKey();
+            LevelStore store = levelEntry.getValue();
+
+            LongOpenHashSet touched;
+            synchronized (TOUCHED) {
+                touched = TOUCHED.remove(world);
+            }
+            if (touched != null) {
+                BedCheckSettings settings = BedCheckSettings.forLevel(world);
+                for (LongIterator iterator = touched.iterator(); iterator.hasNext(); ) {
+                    long key = iterator.nextLong();
+                    Region region = store.regions.get(key);
+                    if (region == null) {
+                        if (!Files.exists(store.file(key))) continue;
+                        region = store.load(key);
+                    }
+                    region.revalidate(world, settings);
+                }
+            }
+
+            for (Long2ObjectMap.Entry<Region> regionEntry : store.regions.long2ObjectEntrySet()) {
+                Region region = regionEntry.getValue();
+                if (!region.dirty) continue;
+                try {
+                    store.write(regionEntry.getLongKey(), region);
+                    region.dirty = false;
+                } catch (IOException e) {
+                    ModConfig.LOGGER.error("Failed to write bed safety region {}", store.file(regionEntry.getLongKey()), e);
+                }
+            }
+        }
+    }
+
+    public static void clear() {
+        STORES.clear();
+        synchronized (TOUCHED) {
+            TOUCHED.clear();
+        }
+    }
+
+    // --- Internals ---
+
+    private static Region region(ServerLevel world, BlockPos pos) {
+        LevelStore store = STORES.computeIfAbsent(world, LevelStore::new);
+        long key = regionKey(pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+        Region region = store.regions.get(key);
+        if (region == null) region = store.load(key);
+        region.syncVillages();
+        return region;
+    }
+
+    /**
+     * Whether a stored verdict still describes the level under the current settings.
+     */
+    private static boolean isCurrent(ServerLevel world, BlockPos bedPos, Entry entry, BedCheckSettings settings) {
+        if (entry.settingsFingerprint != settings.fingerprint()) return false;
+        if (entry.anchored) return entry.regionHash == BedVerdictCache.regionHash(world, bedPos, settings);
+        if (!unchangedThisSession(world, bedPos, settings)) return false;
+
+        entry.regionHash = BedVerdictCache.regionHash(world, bedPos, settings);
+        entry.anchored = true;
+        return true;
+    }
+
+    /**
+     * True if no block changed in the bed's volume, widened by a light radius, since the server started.
+     */
+    private static boolean unchangedThisSession(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        int horizontal = settings.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN + 16;
+        int vertical = settings.verticalRadius() + ReachabilityField.VERTICAL_MARGIN + 16;
+
+        int minSectionX = SectionPos.blockToSectionCoord(bedPos.getX() - horizontal);
+        int maxSectionX = SectionPos.blockToSectionCoord(bedPos.getX() + horizontal);
+        int minSectionY = SectionPos.blockToSectionCoord(bedPos.getY() - vertical);
+        int maxSectionY = SectionPos.blockToSectionCoord(bedPos.getY() + vertical + 2);
+        int minSectionZ = SectionPos.blockToSectionCoord(bedPos.getZ() - horizontal);
+        int maxSectionZ = SectionPos.blockToSectionCoord(bedPos.getZ() + horizontal);
+
+        for (int sx = minSectionX; sx <= maxSectionX; sx++) {
+            for (int sz = minSectionZ; sz <= maxSectionZ; sz++) {
+                for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                    if (SectionChangeTracker.getBlockVersion(world, sx, sy, sz) != 0) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long regionKey(int regionX, int regionZ) {
+        return ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+    }
+
+    private static final class LevelStore {
+        private final Path directory;
+        private final Long2ObjectOpenHashMap<Region> regions = new Long2ObjectOpenHashMap<>();
+
+        private LevelStore(ServerLevel world) {
+            Identifier dimension = world.dimension().identifier();
+            this.directory = world.getServer().getWorldPath(LevelResource.ROOT)
+                    .resolve(Harderbeds.MOD_ID)
+                    .resolve(dimension.getNamespace())
+                    .resolve(dimension.getPath());
+        }
+
+        private Path file(long key) {
+            return directory.resolve("r." + (int) (key >> 32) + "." + (int) key + ".bin");
+        }
+
+        /**
+         * Reads the region file, or starts an empty region if there is none or it cannot be read.
+         */
+        private Region load(long key) {
+            Region region = new Region(VillageStructureSet.fingerprint());
+            Path file = file(key);
+            if (Files.exists(file)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                        throw new IOException("Unknown file format");
+                    }
+                    region.villageFingerprint = in.readLong();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Entry entry = new Entry();
+                        long pos = in.readLong();
+                        entry.flags = in.readByte();
+                        entry.settingsFingerprint = in.readInt();
+                        region.beds.put(pos, entry);
+                    }
+                } catch (IOException e) {
+                    ModConfig.LOGGER.warn("Discarding unreadable bed safety region {}: {}", file, e.getMessage());
+                    region.beds.clear();
+                }
+            }
+            regions.put(key, region);
+            return region;
+        }
+
+        /**
+         * Replaces the region file in one move, or deletes it once the region holds nothing.
+         */
+        private void write(long key, Region region) throws IOException {
+            Path file = file(key);
+            if (region.beds.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+
+            Files.createDirectories(directory);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(region.villageFingerprint);
+                out.writeInt(region.beds.size());
+                for (Long2ObjectMap.Entry<Entry> bed : region.beds.long2ObjectEntrySet()) {
+                    out.writeLong(bed.getLongKey());
+                    out.writeByte(bed.getValue().flags);
+                    out.writeInt(bed.getValue().settingsFingerprint);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static final class Region {
+        private final Long2ObjectOpenHashMap<Entry> beds = new Long2ObjectOpenHashMap<>();
+        private long villageFingerprint;
+        private boolean dirty;
+
+        private Region(long villageFingerprint) {
+            this.villageFingerprint = villageFingerprint;
+        }
+
+        /**
+         * The entry for the position, created if missing, or null if the region is full.
+         */
+        private Entry entry(long pos) {
+            Entry entry = beds.get(pos);
+            if (entry == null && beds.size() < MAX_ENTRIES_PER_REGION) {
+                entry = new Entry();
+                beds.put(pos, entry);
+            }
+            return entry;
+        }
+
+        /**
+         * Drops village bits written under another set of village structures.
+         */
+        private void syncVillages() {
+            long current = VillageStructureSet.fingerprint();
+            if (current == 0 || current == villageFingerprint) return;
+            for (Entry entry : beds.values()) {
+                entry.flags &= ~(VILLAGE_KNOWN | IN_VILLAGE);
+            }
+            villageFingerprint = current;
+            dirty = true;
+            removeEmpty();
+        }
+
+        private void revalidate(ServerLevel world, BedCheckSettings settings) {
+            for (Long2ObjectMap.Entry<Entry> bed : beds.long2ObjectEntrySet()) {
+                Entry entry = bed.getValue();
+                if ((entry.flags & VERDICT_KNOWN) == 0) continue;
+                if (!isCurrent(world, BlockPos.of(bed.getLongKey()), entry, settings)) {
+                    entry.flags &= ~(VERDICT_KNOWN | SAFE);
+                    dirty = true;
+                }
+            }
+            removeEmpty();
+        }
+
+        private void removeEmpty() {
+            for (ObjectIterator<Entry> iterator = beds.values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().flags == 0) {
+                    iterator.remove();
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private byte flags;
+        private int settingsFingerprint;
+        /** Region hash the verdict holds against this session, once {@link #anchored}. */
+        private long regionHash;
+        private boolean anchored;
+    }
+}
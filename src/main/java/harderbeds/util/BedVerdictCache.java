@@ -0,0 +1,188 @@
+package harderbeds.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of bed safety verdicts per {@code (dimension, bedPos)}.
+ * <p>
+ * Each entry carries a hash over the {@link SectionChangeTracker} block and light
+ * versions of every section the check looked at, so any block or light change inside the
+ * scan volume makes it miss. Only the terrain answer is cached, under the settings it was
+ * computed with — verdicts caused by a live mob or by an exhausted budget never are. Mobs
+ * move without changing the region, so callers still check the existing mobs on a safe
+ * hit; an unsafe hit needs nothing else.
+ * <p>
+ * The walk ends within one block of either bed half or at the player's feet, so an entry
+ * also remembers where the player stood if that added a destination. A safe verdict holds for a
+ * player who adds none or the same one, an unsafe one for a player at the same spot or when
+ * it was reached without any. Verdicts for the bed alone, such as precomputed ones, are also
+ * handed to {@link BedSafetyStore}, which restores them after a restart on the first miss.
+ * Server thread only.
+ */
+public final class BedVerdictCache {
+
+    private static final int MAX_ENTRIES = 256;
+    /** The player's feet added no destination to the walk. */
+    private static final long BED_ONLY = Long.MIN_VALUE;
+
+    private static final Map<Key, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private BedVerdictCache() {
+    }
+
+    /**
+     * Returns the cached terrain verdict for the bed, or null on a miss. Counts the hit or miss.
+     *
+     * @param targetPos the player's feet position the check would walk to
+     */
+    public static Boolean lookup(ServerLevel world, BlockPos bedPos, BlockPos targetPos, BedCheckSettings settings) {
+        Key key = new Key(world.dimension(), bedPos.asLong());
+        Entry entry = ENTRIES.get(key);
+
+        if (entry != null && (!entry.settings.equals(settings)
+                || entry.regionHash != regionHash(world, bedPos, settings))) {
+            ENTRIES.remove(key);
+            invalidations.incrementAndGet();
+            entry = null;
+        }
+
+        if (entry == null) {
+            entry = restore(world, bedPos, settings);
+            if (entry != null) ENTRIES.put(key, entry);
+        }
+        if (entry == null || !entry.holdsFor(extraTarget(world, bedPos, targetPos))) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.safe;
+    }
+
+    /**
+     * True if an entry for the bed exists, still matches the region and settings and holds for
+     * a player next to the bed. Counts nothing.
+     */
+    public static boolean hasFreshVerdict(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        Key key = new Key(world.dimension(), bedPos.asLong());
+        Entry entry = ENTRIES.get(key);
+        if (entry == null) {
+            entry = restore(world, bedPos, settings);
+            if (entry == null) return false;
+            ENTRIES.put(key, entry);
+            return true;
+        }
+        return entry.settings.equals(settings) && entry.regionHash == regionHash(world, bedPos, settings)
+                && entry.holdsFor(BED_ONLY);
+    }
+
+    /**
+     * Stores a terrain verdict for the bed, hashed against the region as it is right now.
+     *
+     * @param targetPos the player's feet position the walk was seeded with, or the bed itself
+     */
+    public static void put(ServerLevel world, BlockPos bedPos, BlockPos targetPos, boolean safe, BedCheckSettings settings) {
+        long regionHash = regionHash(world, bedPos, settings);
+        long target = extraTarget(world, bedPos, targetPos);
+        ENTRIES.put(new Key(world.dimension(), bedPos.asLong()), new Entry(safe, regionHash, settings, target));
+        if (target == BED_ONLY) BedSafetyStore.recordVerdict(world, bedPos, safe, settings, regionHash);
+    }
+
+    /**
+     * The verdict stored in an earlier session, if it still holds.
+     */
+    private static Entry restore(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        Boolean safe = BedSafetyStore.restoreVerdict(world, bedPos, settings);
+        if (safe == null) return null;
+        return new Entry(safe, regionHash(world, bedPos, settings), settings, BED_ONLY);
+    }
+
+    public static void clear() {
+        ENTRIES.clear();
+    }
+
+    public static int size() {
+        return ENTRIES.size();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Hash over the block and light versions of every section in the bed's snapshot volume.
+     */
+    static long regionHash(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        int horizontal = settings.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN;
+        int vertical = settings.verticalRadius() + ReachabilityField.VERTICAL_MARGIN;
+
+        int minSectionX = SectionPos.blockToSectionCoord(bedPos.getX() - horizontal);
+        int maxSectionX = SectionPos.blockToSectionCoord(bedPos.getX() + horizontal);
+        int minSectionY = SectionPos.blockToSectionCoord(bedPos.getY() - vertical);
+        int maxSectionY = SectionPos.blockToSectionCoord(bedPos.getY() + vertical + 2);
+        int minSectionZ = SectionPos.blockToSectionCoord(bedPos.getZ() - horizontal);
+        int maxSectionZ = SectionPos.blockToSectionCoord(bedPos.getZ() + horizontal);
+
+        long hash = 1;
+        for (int sx = minSectionX; sx <= maxSectionX; sx++) {
+            for (int sz = minSectionZ; sz <= maxSectionZ; sz++) {
+                for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                    hash = hash * 31 + SectionChangeTracker.getBlockVersion(world, sx, sy, sz);
+                    hash = hash * 31 + SectionChangeTracker.getLightVersion(world, sx, sy, sz);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The destination the player's feet add to the walk: none if they stand within one block
+     * of either half, diagonals included, which {@link ReachabilityField} targets anyway.
+     */
+    private static long extraTarget(ServerLevel world, BlockPos bedPos, BlockPos targetPos) {
+        for (BlockPos bedBlock : ReachabilityField.bedBlocks(world.getBlockState(bedPos), bedPos)) {
+            if (Math.abs(targetPos.getX() - bedBlock.getX()) <= 1 && Math.abs(targetPos.getY() - bedBlock.getY()) <= 1
+                    && Math.abs(targetPos.getZ() - bedBlock.getZ()) <= 1) {
+                return BED_ONLY;
+            }
+        }
+        return targetPos.asLong();
+    }
+
+    private record Key(ResourceKey<Level> dimension, long bedPos) {
+    }
+
+    private record Entry(boolean safe, long regionHash, BedCheckSettings settings, long target) {
+
+        /**
+         * Fewer destinations can only make a safe bed safer, more only keep an unsafe one unsafe.
+         */
+        private boolean holdsFor(long otherTarget) {
+            return target == otherTarget || (safe ? otherTarget == BED_ONLY : target == BED_ONLY);
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package harderbeds.util;
 
-import harderbeds.Harderbeds;
+import harderbeds.config.ModConfig;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.registries.Registries;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.tags.StructureTags;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.levelgen.structure.Structure;
@@ -14,24 +12,26 @@ public class CheckBedLocation {
     public static boolean isWithinVillageStructure(Level world, BlockPos pos) {
         if (world == null || pos == null || world.isClientSide()) return false;
 
-        if(Harderbeds.debug) System.out.println("Checking if Block is in village structure......");
-
         try {
             ServerLevel serverWorld = (ServerLevel) world;
             if (serverWorld.structureManager() == null) return false;
 
-            var structureReference = serverWorld.structureManager().getStructureWithPieceAt(pos, StructureTags.VILLAGE);
-
-            if (structureReference != null && structureReference.isValid()) {
-                if(Harderbeds.debug) System.out.println("Bed is in village structure!");
-                return true;
+            long start = System.nanoTime();
+            Boolean stored = BedSafetyStore.village(serverWorld, pos);
+            boolean inVillage;
+            if (stored != null) {
+                inVillage = stored;
             } else {
-                if(Harderbeds.debug) System.out.println("Bed is NOT village structure!");
-                return false;
+                inVillage = VillageStructureCache.isInVillage(serverWorld, pos);
+                BedSafetyStore.recordVillage(serverWorld, pos, inVillage);
             }
+            BedCheckMetrics.record(BedCheckMetrics.Phase.VILLAGE_LOOKUP, start);
+
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.VILLAGE, inVillage ? 1 : 0, pos.asLong());
+            return inVillage;
 
         } catch (Exception e) {
-            if(Harderbeds.debug) System.out.println("Primary structure check failed, trying fallback: " + e.getMessage());
+            ModConfig.LOGGER.warn("Village structure check failed, trying fallback: {}", e.getMessage());
             return isWithinVillageStructureFallback(world, pos);
         }
     }
@@ -87,37 +87,13 @@ public class CheckBedLocation {
             return false;
 
         } catch (Exception e) {
-            if(Harderbeds.debug)  System.out.println("Fallback structure check failed: " + e.getMessage());
+            ModConfig.LOGGER.warn("Fallback village structure check failed: {}", e.getMessage());
             return false;
         }
     }
 
     public static boolean isVillageStructure(ServerLevel world, Structure structure) {
         if (world == null || structure == null) return false;
-
-        try {
-            var registryManager = world.registryAccess();
-            if (registryManager == null) return false;
-
-            var registry = registryManager.lookupOrThrow(Registries.STRUCTURE);
-            if (registry == null) return false;
-
-            var identifier = registry.getKey(structure);
-            if (identifier == null) return false;
-
-            String path = identifier.getPath();
-            if (path == null) return false;
-
-            return path.equals("village_plains") ||
-                    path.equals("village_desert") ||
-                    path.equals("village_savanna") ||
-                    path.equals("village_snowy") ||
-                    path.equals("village_taiga") ||
-                    path.contains("village");
-
-        } catch (Exception e) {
-            if(Harderbeds.debug)  System.err.println("Error checking village structure: " + e.getMessage());
-            return false;
-        }
+        return VillageStructureSet.contains(structure);
     }
 }
\ No newline at end of file
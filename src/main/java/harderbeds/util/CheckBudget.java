@@ -0,0 +1,108 @@
+package harderbeds.util;
+
+/**
+ * Path search and time allowance of a single bed check.
+ * <p>
+ * Time is only charged while the check is running, so an asynchronous check that waits
+ * for its worker or for the next tick is not billed for the wait. Once either limit is hit
+ * the budget stays exhausted and the check answers with its fallback verdict.
+ * <p>
+ * Expensive phases check the budget as they go and throw {@link Exhausted} to abandon the
+ * check. Phases that may run on worker threads get a plain {@link #deadline} instead of the
+ * budget. A phase that finishes has answered, whatever the clock says afterwards.
+ */
+public final class CheckBudget {
+
+    /** Deadline of a budget without a time limit. */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final int maxPathSearches;
+    private final long maxNanos;
+
+    private int pathSearches = 0;
+    private long spentNanos = 0;
+    private long runningSince = -1;
+    private boolean exhausted = false;
+
+    public CheckBudget(BedCheckSettings settings) {
+        this.maxPathSearches = settings.maxPathSearches();
+        this.maxNanos = settings.maxMicros() * 1000L;
+    }
+
+    /**
+     * Starts charging time.
+     */
+    public CheckBudget resume() {
+        if (runningSince < 0) runningSince = System.nanoTime();
+        return this;
+    }
+
+    /**
+     * Stops charging time until the next {@link #resume}.
+     */
+    public void pause() {
+        if (runningSince >= 0) {
+            spentNanos += System.nanoTime() - runningSince;
+            runningSince = -1;
+        }
+    }
+
+    /**
+     * Claims one path search.
+     *
+     * @return false if the budget is exhausted and the search must not run
+     */
+    public boolean trySearch() {
+        if (isExhausted()) return false;
+        if (maxPathSearches > 0 && pathSearches >= maxPathSearches) {
+            exhausted = true;
+            return false;
+        }
+        pathSearches++;
+        return true;
+    }
+
+    /**
+     * Claims one path search, or a reachability field that answers every candidate at once.
+     *
+     * @throws Exhausted if the budget is exhausted and the search must not run
+     */
+    public void claimSearch() {
+        if (!trySearch()) throw new Exhausted();
+    }
+
+    /**
+     * The {@link System#nanoTime} at which the time allowance runs out if the check keeps
+     * running, or {@link #NO_DEADLINE}. A plain value, so worker threads can check it.
+     */
+    public long deadline() {
+        if (maxNanos <= 0) return NO_DEADLINE;
+        long now = System.nanoTime();
+        long spent = spentNanos + (runningSince >= 0 ? now - runningSince : 0);
+        return now + Math.max(0, maxNanos - spent);
+    }
+
+    /**
+     * @throws Exhausted if the deadline has passed
+     */
+    public static void checkDeadline(long deadline) {
+        if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) throw new Exhausted();
+    }
+
+    public boolean isExhausted() {
+        if (!exhausted && maxNanos > 0) {
+            long spent = spentNanos + (runningSince >= 0 ? System.nanoTime() - runningSince : 0);
+            exhausted = spent >= maxNanos;
+        }
+        return exhausted;
+    }
+
+    /**
+     * The budget ran out before the check could finish. Carries no stack trace.
+     */
+    public static final class Exhausted extends RuntimeException {
+        public Exhausted() {
+            super("Bed check budget exhausted", null, false, false);
+        }
+    }
+}
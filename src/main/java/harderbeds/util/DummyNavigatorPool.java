@@ -0,0 +1,62 @@
+package harderbeds.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.EntitySpawnReason;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.monster.zombie.Zombie;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps one pathfinding dummy per {@link ServerLevel} so the secondary bed check
+ * does not construct, spawn-finalize and tick a fresh zombie for every candidate block.
+ * <p>
+ * The dummy is never added to the world and never ticked. Each query only moves it
+ * to the candidate position and marks it as grounded, which is all
+ * {@link net.minecraft.world.entity.ai.navigation.PathNavigation#createPath} needs.
+ * Server thread only.
+ */
+public final class DummyNavigatorPool {
+
+    private static final Map<ServerLevel, Mob> DUMMIES = new WeakHashMap<>();
+
+    private DummyNavigatorPool() {
+    }
+
+    /**
+     * Returns the dummy for {@code world}, positioned at {@code start} and ready for {@code createPath}.
+     */
+    public static Mob acquire(ServerLevel world, BlockPos start) {
+        Mob dummyMob = DUMMIES.computeIfAbsent(world, level -> createDummy(level, start));
+
+        dummyMob.setPos(start.getX() + 0.5, start.getY(), start.getZ() + 0.5);
+        dummyMob.setOnGround(true);
+        dummyMob.getNavigation().stop();
+        return dummyMob;
+    }
+
+    /**
+     * Drops every pooled dummy, e.g. when the server shuts down.
+     */
+    public static void clear() {
+        DUMMIES.values().forEach(Mob::discard);
+        DUMMIES.clear();
+    }
+
+    private static Mob createDummy(ServerLevel world, BlockPos start) {
+        Zombie dummyMob = new Zombie(EntityType.ZOMBIE, world);
+        dummyMob.setSilent(true);
+        dummyMob.setInvisible(true);
+        dummyMob.setNoGravity(true);
+        dummyMob.getNavigation().setCanFloat(true);
+
+        // finalizeSpawn without adding to world — sets up attributes (follow range) used by navigation.
+        // Fixed group data keeps the dummy adult and never rolls a chicken jockey into the world.
+        dummyMob.finalizeSpawn(world, world.getCurrentDifficultyAt(start), EntitySpawnReason.COMMAND,
+                new Zombie.ZombieGroupData(false, false));
+        return dummyMob;
+    }
+}
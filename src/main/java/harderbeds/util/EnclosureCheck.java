@@ -0,0 +1,213 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proves a bed safe without any pathfinding when it stands in a sealed room.
+ * <p>
+ * Flood-fills the open space around the bed on the live level, stopping at walls in the
+ * sense of {@link ReachabilityField#isWall} — closed doors and gates included, the same
+ * door rule as {@code pathContainsBlockingDoor}. If the fill runs out of cells before
+ * leaving the check volume or exceeding {@link #MAX_CELLS}, nothing outside can walk in.
+ * The bed is then safe as long as no spawnable floor lies inside the room (outside the
+ * inner exclusion cube) and no monster is already in it.
+ * <p>
+ * The room, the sections its cells and walls live in and their block and light versions
+ * are cached per bed, so the fill only reruns once the shell or its contents change.
+ * A sealed room is also stored in {@link BedSafetyStore} as a safe terrain verdict.
+ * Server thread only.
+ */
+public final class EnclosureCheck {
+
+    private static final int MAX_CELLS = 4096;
+    private static final int MAX_ENTRIES = 128;
+
+    private static final Map<Key, Room> ROOMS = new LinkedHashMap<>(32, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Room> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private EnclosureCheck() {
+    }
+
+    /**
+     * True if the bed sits in a sealed room without spawnable floor and without monsters.
+     *
+     * @param nearbyMobs the monsters currently in the search box
+     */
+    public static boolean isSealed(ServerLevel world, BlockPos bedPos, List<Mob> nearbyMobs, BedCheckSettings settings) {
+        long start = System.nanoTime();
+        try {
+            Key key = new Key(world.dimension(), bedPos.asLong());
+            Room room = ROOMS.get(key);
+            if (room == null || !room.isValid(world, settings)) {
+                room = fill(world, bedPos, settings);
+                if (room == null) {
+                    ROOMS.remove(key);
+                    return false;
+                }
+                ROOMS.put(key, room);
+                if (room.sealed) {
+                    BedSafetyStore.recordVerdict(world, bedPos, true, settings, BedVerdictCache.regionHash(world, bedPos, settings));
+                }
+            }
+            if (!room.sealed) return false;
+
+            for (Mob mob : nearbyMobs) {
+                if (room.cells.contains(mob.blockPosition().asLong())) return false;
+            }
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.ENCLOSED, room.cells.size(), bedPos.asLong());
+            return true;
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.ENCLOSURE, start);
+        }
+    }
+
+    public static void clear() {
+        ROOMS.clear();
+    }
+
+    /**
+     * Fills the room around the bed.
+     *
+     * @return the room, or null if the fill reached an unloaded chunk, which is not cached
+     */
+    private static Room fill(ServerLevel world, BlockPos bedPos, BedCheckSettings settings) {
+        int horizontal = settings.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN;
+        int vertical = settings.verticalRadius() + ReachabilityField.VERTICAL_MARGIN;
+
+        LongOpenHashSet seen = new LongOpenHashSet();
+        LongOpenHashSet cells = new LongOpenHashSet();
+        LongOpenHashSet sections = new LongOpenHashSet();
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        boolean sealed = true;
+
+        for (Direction direction : Direction.values()) {
+            long seed = bedPos.relative(direction).asLong();
+            if (seen.add(seed)) queue.enqueue(seed);
+        }
+
+        while (!queue.isEmpty()) {
+            long cell = queue.dequeueLong();
+            int x = BlockPos.getX(cell), y = BlockPos.getY(cell), z = BlockPos.getZ(cell);
+
+            if (Math.abs(x - bedPos.getX()) > horizontal || Math.abs(z - bedPos.getZ()) > horizontal
+                    || Math.abs(y - bedPos.getY()) > vertical || seen.size() > MAX_CELLS) {
+                sealed = false;
+                break;
+            }
+            if (!world.hasChunk(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z))) {
+                return null;
+            }
+
+            sections.add(SectionPos.asLong(
+                    SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y), SectionPos.blockToSectionCoord(z)));
+            BlockState state = world.getBlockState(pos.set(x, y, z));
+            if (ReachabilityField.isWall(state)) continue;
+            cells.add(cell);
+
+            // The floor test below also reads the blocks above and below.
+            sections.add(SectionPos.asLong(
+                    SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y - 1), SectionPos.blockToSectionCoord(z)));
+            sections.add(SectionPos.asLong(
+                    SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y + 1), SectionPos.blockToSectionCoord(z)));
+            if (isSpawnFloorBelow(world, pos, bedPos, settings)) {
+                sealed = false;
+                break;
+            }
+
+            for (Direction direction : Direction.values()) {
+                long neighbour = BlockPos.offset(cell, direction);
+                if (seen.add(neighbour)) queue.enqueue(neighbour);
+            }
+        }
+
+        long[] sectionKeys = sections.toLongArray();
+        int[] versions = new int[sectionKeys.length * 2];
+        for (int i = 0; i < sectionKeys.length; i++) {
+            versions[i * 2] = blockVersion(world, sectionKeys[i]);
+            versions[i * 2 + 1] = lightVersion(world, sectionKeys[i]);
+        }
+        return new Room(sealed, sealed ? cells : new LongOpenHashSet(), sectionKeys, versions, settings);
+    }
+
+    /**
+     * Whether the open cell at {@code pos} is the air above a spawnable floor the check would count,
+     * with the rules of {@link SpawnCandidateScanner}.
+     */
+    private static boolean isSpawnFloorBelow(ServerLevel world, BlockPos.MutableBlockPos pos, BlockPos bedPos,
+                                             BedCheckSettings settings) {
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        int floorY = y - 1;
+        if (Math.abs(x - bedPos.getX()) > settings.horizontalRadius()
+                || Math.abs(z - bedPos.getZ()) > settings.horizontalRadius()
+                || Math.abs(floorY - bedPos.getY()) > settings.verticalRadius()) {
+            return false;
+        }
+        if ((Math.abs(x - bedPos.getX()) <= settings.exclusionRadius() && Math.abs(z - bedPos.getZ()) <= settings.exclusionRadius())
+                || Math.abs(floorY - bedPos.getY()) <= settings.exclusionRadius()) {
+            return false;
+        }
+
+        SpawnRules rules = settings.spawnRules();
+        if (!world.getBlockState(pos).isAir()) return false;
+        int skyLight = rules.checksSkyLight() ? world.getBrightness(LightLayer.SKY, pos) : 0;
+        if (!rules.allowsLight(world.getBrightness(LightLayer.BLOCK, pos), skyLight)) return false;
+        if (!world.getBlockState(pos.set(x, y + 1, z)).isAir()) {
+            pos.set(x, y, z);
+            return false;
+        }
+        BlockState floor = world.getBlockState(pos.set(x, floorY, z));
+        boolean spawnable = rules.isSpawnFloor(floor);
+        pos.set(x, y, z);
+        return spawnable;
+    }
+
+    private static int blockVersion(ServerLevel world, long sectionKey) {
+        return SectionChangeTracker.getBlockVersion(world,
+                SectionPos.x(sectionKey), SectionPos.y(sectionKey), SectionPos.z(sectionKey));
+    }
+
+    private static int lightVersion(ServerLevel world, long sectionKey) {
+        return SectionChangeTracker.getLightVersion(world,
+                SectionPos.x(sectionKey), SectionPos.y(sectionKey), SectionPos.z(sectionKey));
+    }
+
+    private record Key(ResourceKey<Level> dimension, long bedPos) {
+    }
+
+    private record Room(boolean sealed, LongOpenHashSet cells, long[] sectionKeys, int[] versions,
+                        BedCheckSettings settings) {
+
+        /**
+         * Still describes the level: same settings and no block or light change in any section it read.
+         */
+        private boolean isValid(ServerLevel world, BedCheckSettings current) {
+            if (!settings.equals(current)) return false;
+            for (int i = 0; i < sectionKeys.length; i++) {
+                if (blockVersion(world, sectionKeys[i]) != versions[i * 2]
+                        || lightVersion(world, sectionKeys[i]) != versions[i * 2 + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Mob;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the outcome of the last existing-mob path search per mob.
+ * <p>
+ * A path search is deterministic for a given mob position, target and set of blocks, so
+ * an outcome is reused as long as the mob has not moved to another block, the bed and the
+ * player's feet are the same and the region hash of the bed's volume is unchanged. Paths
+ * can leave that volume, so entries also expire after {@link #MAX_AGE_TICKS}.
+ * Server thread only.
+ */
+public final class MobPathCache {
+
+    private static final int MAX_ENTRIES_PER_LEVEL = 512;
+    private static final long MAX_AGE_TICKS = 200;
+
+    private static final Map<ServerLevel, Int2ObjectLinkedOpenHashMap<Entry>> ENTRIES = new WeakHashMap<>();
+
+    private MobPathCache() {
+    }
+
+    /**
+     * Returns the still valid outcome for this mob, or null if it has to search again.
+     */
+    static Entry lookup(ServerLevel world, Mob mob, BlockPos bedPos, BlockPos targetPos, long regionHash) {
+        Int2ObjectLinkedOpenHashMap<Entry> entries = ENTRIES.get(world);
+        if (entries == null) return null;
+
+        Entry entry = entries.getAndMoveToLast(mob.getId());
+        if (entry == null) return null;
+        if (entry.mobPos != mob.blockPosition().asLong()
+                || entry.bedPos != bedPos.asLong()
+                || entry.targetPos != targetPos.asLong()
+                || entry.regionHash != regionHash
+                || world.getGameTime() - entry.gameTime > MAX_AGE_TICKS) {
+            entries.remove(mob.getId());
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the outcome of a search that just ran.
+     *
+     * @param nodes the walk as packed positions if the mob can reach the bed, null if it cannot
+     */
+    static void put(ServerLevel world, Mob mob, BlockPos bedPos, BlockPos targetPos, long regionHash, long[] nodes) {
+        Int2ObjectLinkedOpenHashMap<Entry> entries = ENTRIES.computeIfAbsent(world, level -> new Int2ObjectLinkedOpenHashMap<>());
+        entries.putAndMoveToLast(mob.getId(), new Entry(mob.blockPosition().asLong(), bedPos.asLong(), targetPos.asLong(),
+                regionHash, world.getGameTime(), nodes));
+        if (entries.size() > MAX_ENTRIES_PER_LEVEL) {
+            entries.removeFirst();
+        }
+    }
+
+    public static void clear() {
+        ENTRIES.clear();
+    }
+
+    record Entry(long mobPos, long bedPos, long targetPos, long regionHash, long gameTime, long[] nodes) {
+
+        boolean reachable() {
+            return nodes != null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flood-fill secondary check with the candidate scan and lookups split across a small
+ * fork-join pool.
+ * <p>
+ * The reachability field is built once on the calling thread, then slabs of columns are
+ * scanned in parallel against the snapshot, each column checked against the field as it
+ * is read. The winner is the reachable candidate that comes first in the sequential visiting
+ * order for the same shuffle seed — Y layer top-down, then shuffled column rank — so the
+ * answer is exactly that of {@link BedSafetyChecker#findReachableSpawn} over
+ * {@link SpawnCandidateScanner#scan}, whatever the thread timing. Once a candidate is found,
+ * every slab stops reading below its layer.
+ */
+public final class ParallelCandidateSearch {
+
+    private static final int MAX_THREADS = 4;
+    private static final int COLUMNS_PER_SLAB = 4;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static ForkJoinPool pool;
+
+    private ParallelCandidateSearch() {
+    }
+
+    /**
+     * @return the walk from the first reachable candidate to the bed, or null if none is reachable
+     */
+    public static long[] findReachableSpawn(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, long shuffleSeed,
+                                            BedCheckSettings settings, int maxFallDistance) {
+        return findReachableSpawn(snapshot, bedPos, targetPos, shuffleSeed, settings, maxFallDistance, CheckBudget.NO_DEADLINE);
+    }
+
+    /**
+     * Like {@link #findReachableSpawn(RegionView, BlockPos, BlockPos, long, BedCheckSettings, int)},
+     * giving up once the deadline passes.
+     *
+     * @throws CheckBudget.Exhausted if the deadline passes before the search is complete
+     */
+    public static long[] findReachableSpawn(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, long shuffleSeed,
+                                            BedCheckSettings settings, int maxFallDistance, long deadline) {
+        ReachabilityField field = ReachabilityField.compute(snapshot, bedPos, targetPos, maxFallDistance, deadline);
+        BedCheckMetrics.increment(BedCheckMetrics.Counter.FIELDS_COMPUTED);
+
+        int horizontalRadius = settings.horizontalRadius();
+        int exclusionRadius = settings.exclusionRadius();
+        int horizontalRange = horizontalRadius * 2 + 1;
+        int totalPairs = horizontalRange * horizontalRange;
+        int originX = bedPos.getX() - horizontalRadius;
+        int originZ = bedPos.getZ() - horizontalRadius;
+        int topY = bedPos.getY() + settings.verticalRadius();
+        int bottomY = bedPos.getY() - settings.verticalRadius();
+
+        // Same shuffle as the sequential scan, so ranks mean the same visiting order.
+        int[] xzPairs = new int[totalPairs * 2];
+        int[] columnRank = new int[totalPairs];
+        SpawnCandidateScanner.rankColumns(xzPairs, columnRank, horizontalRange, RandomSource.create(shuffleSeed));
+
+        long start = System.nanoTime();
+        AtomicLong best = new AtomicLong(NONE);
+        List<Callable<Void>> slabs = new ArrayList<>();
+        for (int slabStart = 0; slabStart < horizontalRange; slabStart += COLUMNS_PER_SLAB) {
+            int firstDx = slabStart;
+            int lastDx = Math.min(horizontalRange, slabStart + COLUMNS_PER_SLAB) - 1;
+            slabs.add(() -> {
+                LongArrayList column = new LongArrayList();
+                long cellsScanned = 0;
+                long candidatesFound = 0;
+
+                for (int dx = firstDx; dx <= lastDx; dx++) {
+                    CheckBudget.checkDeadline(deadline);
+                    for (int dz = 0; dz < horizontalRange; dz++) {
+                        int x = originX + dx, z = originZ + dz;
+                        if (Math.abs(x - bedPos.getX()) <= exclusionRadius && Math.abs(z - bedPos.getZ()) <= exclusionRadius) {
+                            continue;
+                        }
+                        int rankInLayer = columnRank[dx * horizontalRange + dz];
+
+                        // Nothing below the best layer so far can win.
+                        long current = best.get();
+                        int lowestY = current == NONE ? bottomY : Math.max(bottomY, topY - (int) (current / totalPairs));
+
+                        column.clear();
+                        cellsScanned += SpawnCandidateScanner.scanColumn(snapshot, x, z, topY, lowestY, bedPos, settings, column);
+                        candidatesFound += column.size();
+                        for (int i = 0; i < column.size(); i++) {
+                            int y = BlockPos.getY(column.getLong(i));
+                            if (field.isReachable(x, y + 1, z)) {
+                                best.accumulateAndGet((long) (topY - y) * totalPairs + rankInLayer, Math::min);
+                                break;
+                            }
+                        }
+                    }
+                }
+                BedCheckMetrics.add(BedCheckMetrics.Counter.CELLS_SCANNED, cellsScanned);
+                BedCheckMetrics.add(BedCheckMetrics.Counter.CANDIDATES_FOUND, candidatesFound);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> slab : getPool().invokeAll(slabs)) {
+                slab.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during parallel candidate search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CheckBudget.Exhausted exhausted) throw exhausted;
+            throw new IllegalStateException("Parallel candidate search failed", e.getCause());
+        } finally {
+            BedCheckMetrics.record(BedCheckMetrics.Phase.CANDIDATE_SCAN, start);
+        }
+
+        long winner = best.get();
+        if (winner == NONE) return null;
+        int y = topY - (int) (winner / totalPairs);
+        int pair = (int) (winner % totalPairs);
+        int x = originX + xzPairs[pair * 2];
+        int z = originZ + xzPairs[pair * 2 + 1];
+        return field.pathFrom(x, y + 1, z);
+    }
+
+    /**
+     * Stops the worker threads. The pool is recreated on the next search.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+            pool = new ForkJoinPool(threads, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("HarderBeds Candidate Search #" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+}
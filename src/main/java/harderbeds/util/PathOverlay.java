@@ -0,0 +1,63 @@
+package harderbeds.util;
+
+import harderbeds.network.PathOverlayPayload;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows the walk of a monster that can reach a bed to the player whose check found it.
+ * <p>
+ * Clients with the mod get the whole walk as one {@link PathOverlayPayload} and draw it
+ * themselves. Vanilla clients get one particle per node plus a marker at the bed, sent to
+ * that player only. Either way a player gets at most one walk every
+ * {@link #MIN_INTERVAL_TICKS}, however often they click. Server thread only.
+ */
+public final class PathOverlay {
+
+    private static final int MIN_INTERVAL_TICKS = 40;
+
+    private static final Map<UUID, Integer> LAST_SENT = new HashMap<>();
+
+    private PathOverlay() {
+    }
+
+    public static void show(ServerLevel world, Player player, long[] nodes) {
+        if (nodes.length == 0 || !(player instanceof ServerPlayer serverPlayer)) return;
+
+        int now = world.getServer().getTickCount();
+        Integer last = LAST_SENT.get(player.getUUID());
+        if (last != null && now - last < MIN_INTERVAL_TICKS) return;
+        LAST_SENT.put(player.getUUID(), now);
+
+        if (ServerPlayNetworking.canSend(serverPlayer, PathOverlayPayload.TYPE)) {
+            ServerPlayNetworking.send(serverPlayer, PathOverlayPayload.of(nodes));
+            return;
+        }
+
+        BlockPos endPos = BlockPos.of(nodes[nodes.length - 1]);
+        world.sendParticles(serverPlayer, ParticleTypes.FLAME, false, false,
+                endPos.getX() + 0.5, endPos.getY() + 0.5, endPos.getZ() + 0.5,
+                5, 0.2, 0.2, 0.2, 0.0);
+        for (long node : nodes) {
+            world.sendParticles(serverPlayer, ParticleTypes.SOUL_FIRE_FLAME, false, false,
+                    BlockPos.getX(node) + 0.5, BlockPos.getY(node) + 0.5, BlockPos.getZ(node) + 0.5,
+                    1, 0.0, 0.0, 0.0, 0.0);
+        }
+    }
+
+    public static void forget(UUID player) {
+        LAST_SENT.remove(player);
+    }
+
+    public static void clear() {
+        LAST_SENT.clear();
+    }
+}
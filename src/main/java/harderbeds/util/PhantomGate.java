@@ -0,0 +1,92 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import harderbeds.config.PhantomSpawnMode;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Decides ahead of time which dimensions and players the phantom spawner may look at.
+ * <p>
+ * Dimension flags are resolved from the config on server start and reload. Player flags
+ * change on bed events: being refused an unsafe bed makes a player eligible, lying down
+ * in a bed clears it. The spawner tick only reads the flags. It is skipped outright in a
+ * dimension without phantoms or without an eligible player, and otherwise walks the
+ * eligible players instead of everyone. Server thread only.
+ */
+public final class PhantomGate {
+
+    private static final Set<ResourceKey<Level>> ALLOWED_DIMENSIONS = new HashSet<>();
+    private static final Set<UUID> REFUSED_BEDS = new HashSet<>();
+
+    private PhantomGate() {
+    }
+
+    /**
+     * Resolves the dimensions phantoms may spawn in. An empty list in the config allows all of them.
+     */
+    public static void rebuild(MinecraftServer server) {
+        List<String> dimensions = ModConfig.getSettings().getPhantomDimensions();
+        ALLOWED_DIMENSIONS.clear();
+        for (ServerLevel world : server.getAllLevels()) {
+            if (dimensions.isEmpty() || dimensions.contains(world.dimension().identifier().toString())) {
+                ALLOWED_DIMENSIONS.add(world.dimension());
+            }
+        }
+    }
+
+    /**
+     * True if {@code PhantomSpawner.tick} has nothing to do in this dimension.
+     */
+    public static boolean shouldSkipTick(ServerLevel world) {
+        ModConfig.HarderBedsSettings config = ModConfig.getSettings();
+        if (config.isPhantomSpawningDisabled()) return true;
+        if (!ALLOWED_DIMENSIONS.contains(world.dimension())) return true;
+        if (config.getPhantomSpawnMode() != PhantomSpawnMode.REFUSED_BEDS) return false;
+
+        for (UUID id : REFUSED_BEDS) {
+            if (world.getPlayerByUUID(id) != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The players the spawner walks in place of {@link ServerLevel#players}.
+     */
+    public static List<ServerPlayer> eligiblePlayers(ServerLevel world) {
+        if (ModConfig.getSettings().getPhantomSpawnMode() != PhantomSpawnMode.REFUSED_BEDS) return world.players();
+
+        List<ServerPlayer> eligible = new ArrayList<>(REFUSED_BEDS.size());
+        for (UUID id : REFUSED_BEDS) {
+            if (world.getPlayerByUUID(id) instanceof ServerPlayer player) eligible.add(player);
+        }
+        return eligible;
+    }
+
+    public static void onBedRefused(Player player) {
+        REFUSED_BEDS.add(player.getUUID());
+    }
+
+    public static void onSlept(Player player) {
+        REFUSED_BEDS.remove(player.getUUID());
+    }
+
+    public static void forget(UUID player) {
+        REFUSED_BEDS.remove(player);
+    }
+
+    public static void clear() {
+        ALLOWED_DIMENSIONS.clear();
+        REFUSED_BEDS.clear();
+    }
+}
@@ -0,0 +1,162 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.BedBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.BedPart;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers where players placed beds and checks those beds ahead of nightfall.
+ * <p>
+ * Beds are keyed by their head block and learned when they are placed or used; breaking
+ * one forgets it. Once per day, when the overworld clock enters the dusk window, the beds
+ * of players who are online are queued in every level with a sky, and a few of them per
+ * tick go through {@link BedSafetyChecker#precompute}. The nether and the end have no night
+ * to get ready for. Beds whose surroundings are not fully loaded are skipped rather than
+ * loading chunks, and stay tracked for the next day. By the time someone right-clicks, the
+ * verdict or the sealed-room answer is usually already cached. Server thread only.
+ */
+public final class PlacedBedTracker {
+
+    private static final int MAX_BEDS_PER_LEVEL = 4096;
+    /** Monsters may spawn from here on; checking later is no longer ahead of time. */
+    private static final long NIGHT_START = 12542;
+
+    private static final Map<ServerLevel, LevelBeds> BEDS = new WeakHashMap<>();
+
+    private PlacedBedTracker() {
+    }
+
+    public static void onBedPlaced(ServerLevel world, BlockPos headPos, UUID owner) {
+        BEDS.computeIfAbsent(world, level -> new LevelBeds()).add(headPos.asLong(), owner);
+    }
+
+    /**
+     * Learns beds that were placed before they could be tracked, e.g. before a restart.
+     */
+    public static void onBedUsed(ServerLevel world, BlockPos headPos, UUID user) {
+        LevelBeds beds = BEDS.computeIfAbsent(world, level -> new LevelBeds());
+        if (!beds.owners.containsKey(headPos.asLong())) beds.add(headPos.asLong(), user);
+    }
+
+    public static void onBedRemoved(ServerLevel world, BlockPos headPos) {
+        LevelBeds beds = BEDS.get(world);
+        if (beds != null) beds.owners.remove(headPos.asLong());
+    }
+
+    /**
+     * The head block of the bed a block state belongs to.
+     */
+    public static BlockPos headOf(BlockState state, BlockPos pos) {
+        return state.getValue(BedBlock.PART) == BedPart.HEAD ? pos : pos.relative(state.getValue(BedBlock.FACING));
+    }
+
+    public static int size() {
+        int size = 0;
+        for (LevelBeds beds : BEDS.values()) {
+            size += beds.owners.size();
+        }
+        return size;
+    }
+
+    public static void clear() {
+        BEDS.clear();
+    }
+
+    /**
+     * Queues the beds at dusk and precomputes a few of them. Called once per server tick.
+     */
+    public static void tick(MinecraftServer server) {
+        ModConfig.HarderBedsSettings config = ModConfig.getSettings();
+        int bedsPerTick = config.getPrecomputeBedsPerTick();
+        if (bedsPerTick <= 0 || BEDS.isEmpty()) return;
+        if (!config.shouldSimulateMobPathingOnSleep()) return;
+        // Precomputing warms the flood-fill verdict only — dummy pathing needs a player to chase.
+        if (!config.isFloodFillReachabilityEnabled()) return;
+
+        long startTime = Math.min(config.getPrecomputeStartTime(), NIGHT_START - 1);
+        for (Map.Entry<ServerLevel, LevelBeds> entry : BEDS.entrySet()) {
+            ServerLevel world = entry.getKey();
+            LevelBeds beds = entry.getValue();
+            if (!world.dimensionType().hasSkyLight()) continue;
+
+            long clock = world.getOverworldClockTime();
+            long timeOfDay = clock % 24000L;
+            long day = clock / 24000L;
+            if (timeOfDay >= startTime && timeOfDay < NIGHT_START) {
+                if (beds.queuedDay != day) {
+                    beds.queuedDay = day;
+                    beds.queueOnline(server);
+                }
+            } else {
+                beds.queue.clear();
+                continue;
+            }
+
+            BedCheckSettings settings = BedCheckSettings.forLevel(world);
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            while (bedsPerTick > 0 && !beds.queue.isEmpty()) {
+                long bed = beds.queue.dequeueLong();
+                if (!isSnapshotLoaded(world, bed, settings)) continue;
+                BlockState state = world.getBlockState(pos.set(bed));
+                if (!(state.getBlock() instanceof BedBlock) || state.getValue(BedBlock.PART) != BedPart.HEAD) {
+                    beds.owners.remove(bed);
+                    continue;
+                }
+                bedsPerTick--;
+                try {
+                    BedSafetyChecker.precompute(world, pos.immutable());
+                } catch (Exception e) {
+                    ModConfig.LOGGER.error("Failed to precompute bed safety at {}", pos, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether every chunk the bed's snapshot would copy is loaded, so checking it loads nothing.
+     */
+    private static boolean isSnapshotLoaded(ServerLevel world, long bed, BedCheckSettings settings) {
+        int horizontal = settings.horizontalRadius() + ReachabilityField.HORIZONTAL_MARGIN;
+        int minChunkX = SectionPos.blockToSectionCoord(BlockPos.getX(bed) - horizontal);
+        int maxChunkX = SectionPos.blockToSectionCoord(BlockPos.getX(bed) + horizontal);
+        int minChunkZ = SectionPos.blockToSectionCoord(BlockPos.getZ(bed) - horizontal);
+        int maxChunkZ = SectionPos.blockToSectionCoord(BlockPos.getZ(bed) + horizontal);
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                if (!world.hasChunk(chunkX, chunkZ)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class LevelBeds {
+        private final Long2ObjectOpenHashMap<UUID> owners = new Long2ObjectOpenHashMap<>();
+        private final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        private long queuedDay = -1;
+
+        private void add(long headPos, UUID owner) {
+            if (owners.size() >= MAX_BEDS_PER_LEVEL && !owners.containsKey(headPos)) return;
+            owners.put(headPos, owner);
+        }
+
+        private void queueOnline(MinecraftServer server) {
+            queue.clear();
+            for (Long2ObjectOpenHashMap.Entry<UUID> bed : owners.long2ObjectEntrySet()) {
+                if (server.getPlayerList().getPlayer(bed.getValue()) != null) {
+                    queue.enqueue(bed.getLongKey());
+                }
+            }
+        }
+    }
+}
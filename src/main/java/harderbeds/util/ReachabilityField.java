@@ -0,0 +1,452 @@
+package harderbeds.util;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.world.Difficulty;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.BedBlock;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.DoorBlock;
+import net.minecraft.world.level.block.FenceGateBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.shapes.VoxelShape;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Walkable distance field around a bed, computed with one reverse breadth-first search
+ * over a {@link RegionView} such as a {@link BedRegionSnapshot}.
+ * <p>
+ * Every cell the search reaches is the feet position of a zombie-sized mob that can walk
+ * to the bed. Checking a spawn candidate is then a single array lookup instead of a full
+ * {@code PathNavigation.createPath}. The movement rules follow what the dummy pathfinding
+ * accepts: closed doors and gates block, open ones pass, a mob steps up one block, drops
+ * as far as its fall distance allows and swims through water. Targets are every cell within
+ * one block of either half of the bed, diagonals included (the "end node within 1 block"
+ * rule, and wherever a player stands to click it), and the player's feet.
+ * <p>
+ * {@link #computeShared} answers several beds at once: instead of a parent pointer every
+ * cell carries a bit mask of the beds it can walk to, so one pass over one volume serves
+ * up to 64 beds.
+ * <p>
+ * Work arrays are thread-local and reused, so a field is only valid until the next
+ * {@link #compute} or {@link #computeShared} on the same thread.
+ */
+public final class ReachabilityField {
+
+    /** Extra blocks around the search box the mob may walk through on its way to the bed. */
+    public static final int HORIZONTAL_MARGIN = 8;
+    public static final int VERTICAL_MARGIN = 4;
+
+    /** Most beds {@link #computeShared} can answer in one pass — one bit each. */
+    public static final int MAX_SHARED_BEDS = Long.SIZE;
+
+    // Palette of cell kinds — the volume is copied as one byte per block.
+    private static final byte BLOCKED = 0;
+    private static final byte OPEN    = 1;
+    private static final byte WATER   = 2;
+    private static final byte LOW     = 3;
+    private static final byte FLOOR   = 4;
+
+    private static final int UNVISITED = -1;
+    /** Cells searched between two looks at the clock. */
+    private static final int DEADLINE_CHECK_MASK = 1023;
+    private static final int[][] HORIZONTAL = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private static final Map<BlockState, Byte> KIND_CACHE = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int minX, minY, minZ, sizeX, sizeY, sizeZ;
+    private final byte[] kinds;
+    private final int[] next;
+    private final long[] masks;
+
+    private ReachabilityField(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] kinds, int[] next, long[] masks) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.kinds = kinds;
+        this.next = next;
+        this.masks = masks;
+    }
+
+    /**
+     * Builds the field for a bed over the whole snapshot volume.
+     *
+     * @param targetPos    the player's feet position, also accepted as a destination
+     * @param maxFallDistance how many blocks a mob is willing to drop, see {@link #maxFallDistance}
+     */
+    public static ReachabilityField compute(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, int maxFallDistance) {
+        return compute(snapshot, bedPos, targetPos, maxFallDistance, CheckBudget.NO_DEADLINE);
+    }
+
+    /**
+     * Like {@link #compute(RegionView, BlockPos, BlockPos, int)}, giving up once the deadline passes.
+     *
+     * @throws CheckBudget.Exhausted if the deadline passes before the field is complete
+     */
+    public static ReachabilityField compute(RegionView snapshot, BlockPos bedPos, BlockPos targetPos, int maxFallDistance,
+                                            long deadline) {
+        int minX = snapshot.getMinX(), minY = snapshot.getMinY(), minZ = snapshot.getMinZ();
+        int sizeX = snapshot.getMaxX() - minX + 1;
+        int sizeY = snapshot.getMaxY() - minY + 1;
+        int sizeZ = snapshot.getMaxZ() - minZ + 1;
+        int volume = sizeX * sizeY * sizeZ;
+
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(volume, maxFallDistance);
+        int[] next = scratch.next;
+        int[] queue = scratch.queue;
+        int[] from = scratch.predecessors;
+
+        fillKinds(snapshot, scratch.kinds, deadline);
+        Arrays.fill(next, 0, volume, UNVISITED);
+
+        ReachabilityField field = new ReachabilityField(minX, minY, minZ, sizeX, sizeY, sizeZ, scratch.kinds, next, null);
+
+        int head = 0, tail = 0;
+        for (BlockPos bedBlock : bedBlocks(snapshot.getBlockState(bedPos.getX(), bedPos.getY(), bedPos.getZ()), bedPos)) {
+            for (BlockPos cell : BlockPos.betweenClosed(bedBlock.offset(-1, -1, -1), bedBlock.offset(1, 1, 1))) {
+                tail = field.seed(cell.getX(), cell.getY(), cell.getZ(), queue, tail);
+            }
+        }
+        tail = field.seed(targetPos.getX(), targetPos.getY(), targetPos.getZ(), queue, tail);
+
+        while (head < tail) {
+            if ((head & DEADLINE_CHECK_MASK) == 0) CheckBudget.checkDeadline(deadline);
+            int cell = queue[head++];
+            int count = field.predecessors(cell, maxFallDistance, from);
+            for (int n = 0; n < count; n++) {
+                int index = from[n];
+                if (next[index] != UNVISITED) continue;
+                next[index] = cell;
+                queue[tail++] = index;
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Builds one field for several beds sharing the snapshot volume. Bed {@code i} gets bit
+     * {@code 1L << i}; {@link #reachableMask} then tells which beds a cell can walk to.
+     * No walks are kept — use {@link #compute} for the path of a bed found reachable.
+     *
+     * @param bedPositions at most {@link #MAX_SHARED_BEDS} beds
+     * @param targetPositions the sleeping player's feet per bed, same order
+     */
+    public static ReachabilityField computeShared(RegionView snapshot, BlockPos[] bedPositions, BlockPos[] targetPositions,
+                                                  int maxFallDistance) {
+        if (bedPositions.length > MAX_SHARED_BEDS) {
+            throw new IllegalArgumentException("At most " + MAX_SHARED_BEDS + " beds per shared field");
+        }
+        int minX = snapshot.getMinX(), minY = snapshot.getMinY(), minZ = snapshot.getMinZ();
+        int sizeX = snapshot.getMaxX() - minX + 1;
+        int sizeY = snapshot.getMaxY() - minY + 1;
+        int sizeZ = snapshot.getMaxZ() - minZ + 1;
+        int volume = sizeX * sizeY * sizeZ;
+
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(volume, maxFallDistance);
+        scratch.ensureMaskCapacity(volume);
+        long[] masks = scratch.masks;
+        boolean[] queued = scratch.queued;
+        int[] queue = scratch.queue;
+        int[] from = scratch.predecessors;
+
+        fillKinds(snapshot, scratch.kinds, CheckBudget.NO_DEADLINE);
+        Arrays.fill(masks, 0, volume, 0L);
+        Arrays.fill(queued, 0, volume, false);
+
+        ReachabilityField field = new ReachabilityField(minX, minY, minZ, sizeX, sizeY, sizeZ, scratch.kinds, null, masks);
+
+        // The queue is a ring: a cell is in it at most once at a time, but comes back
+        // whenever it learns about another bed.
+        int head = 0, size = 0;
+        for (int bed = 0; bed < bedPositions.length; bed++) {
+            long bit = 1L << bed;
+            BlockPos bedPos = bedPositions[bed];
+            for (BlockPos bedBlock : bedBlocks(snapshot.getBlockState(bedPos.getX(), bedPos.getY(), bedPos.getZ()), bedPos)) {
+                for (BlockPos cell : BlockPos.betweenClosed(bedBlock.offset(-1, -1, -1), bedBlock.offset(1, 1, 1))) {
+                    size = field.seedShared(cell.getX(), cell.getY(), cell.getZ(), bit, queue, queued, head, size, volume);
+                }
+            }
+            BlockPos targetPos = targetPositions[bed];
+            size = field.seedShared(targetPos.getX(), targetPos.getY(), targetPos.getZ(), bit, queue, queued, head, size, volume);
+        }
+
+        while (size > 0) {
+            int cell = queue[head];
+            head = (head + 1) % volume;
+            size--;
+            queued[cell] = false;
+
+            long mask = masks[cell];
+            int count = field.predecessors(cell, maxFallDistance, from);
+            for (int n = 0; n < count; n++) {
+                int index = from[n];
+                if ((masks[index] | mask) == masks[index]) continue;
+                masks[index] |= mask;
+                if (!queued[index]) {
+                    queued[index] = true;
+                    queue[(head + size) % volume] = index;
+                    size++;
+                }
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Fall distance the pathfinder allows a zombie chasing a target, mirroring {@code Mob.getMaxFallDistance}.
+     */
+    public static int maxFallDistance(Difficulty difficulty) {
+        int health = 20;
+        int fall = (int) (health - health * 0.33F) - (3 - difficulty.getId()) * 4;
+        return Math.max(3, fall + 3);
+    }
+
+    /**
+     * True if a mob standing with its feet at the given block can walk to the bed.
+     */
+    public boolean isReachable(int x, int y, int z) {
+        int index = indexOf(x - minX, y - minY, z - minZ);
+        if (index < 0) return false;
+        return masks != null ? masks[index] != 0 : next[index] != UNVISITED;
+    }
+
+    /**
+     * Bits of the beds a mob standing with its feet at the given block can walk to.
+     * Only for fields built by {@link #computeShared}.
+     */
+    public long reachableMask(int x, int y, int z) {
+        int index = indexOf(x - minX, y - minY, z - minZ);
+        return index < 0 ? 0L : masks[index];
+    }
+
+    /**
+     * The walk from the given feet position to the bed as packed {@link BlockPos#asLong} values,
+     * or an empty array if it is not reachable.
+     */
+    public long[] pathFrom(int x, int y, int z) {
+        int index = indexOf(x - minX, y - minY, z - minZ);
+        if (next == null || index < 0 || next[index] == UNVISITED) return new long[0];
+
+        int length = 1;
+        for (int cell = index; next[cell] != cell; cell = next[cell]) length++;
+
+        long[] path = new long[length];
+        int cell = index;
+        for (int n = 0; n < length; n++) {
+            path[n] = BlockPos.asLong(
+                    minX + cell / (sizeY * sizeZ),
+                    minY + cell % sizeY,
+                    minZ + (cell / sizeY) % sizeZ);
+            cell = next[cell];
+        }
+        return path;
+    }
+
+    /**
+     * Both blocks of the bed at {@code bedPos}, or only {@code bedPos} if {@code state} is no bed.
+     */
+    static BlockPos[] bedBlocks(BlockState state, BlockPos bedPos) {
+        if (!(state.getBlock() instanceof BedBlock)) return new BlockPos[]{bedPos};
+        return new BlockPos[]{bedPos, bedPos.relative(BedBlock.getConnectedDirection(state))};
+    }
+
+    private int seed(int worldX, int worldY, int worldZ, int[] queue, int tail) {
+        int x = worldX - minX, y = worldY - minY, z = worldZ - minZ;
+        int index = indexOf(x, y, z);
+        if (index < 0 || next[index] != UNVISITED || !isStanding(x, y, z)) return tail;
+        next[index] = index;
+        queue[tail] = index;
+        return tail + 1;
+    }
+
+    private int seedShared(int worldX, int worldY, int worldZ, long bit, int[] queue, boolean[] queued,
+                           int head, int size, int volume) {
+        int x = worldX - minX, y = worldY - minY, z = worldZ - minZ;
+        int index = indexOf(x, y, z);
+        if (index < 0 || !isStanding(x, y, z)) return size;
+        masks[index] |= bit;
+        if (queued[index]) return size;
+        queued[index] = true;
+        queue[(head + size) % volume] = index;
+        return size + 1;
+    }
+
+    /**
+     * Collects the standing cells a mob can move from into {@code cell} in one step.
+     *
+     * @return how many indices were written to {@code out}
+     */
+    private int predecessors(int cell, int maxFallDistance, int[] out) {
+        int y = cell % sizeY;
+        int z = (cell / sizeY) % sizeZ;
+        int x = cell / (sizeY * sizeZ);
+        int count = 0;
+
+        for (int[] step : HORIZONTAL) {
+            int nx = x + step[0];
+            int nz = z + step[1];
+            if (nx < 0 || nx >= sizeX || nz < 0 || nz >= sizeZ) continue;
+
+            // Same level.
+            count = addStanding(nx, y, nz, out, count);
+
+            // Neighbour one below steps up into this cell — needs room to jump.
+            if (isPassable(nx, y + 1, nz)) {
+                count = addStanding(nx, y - 1, nz, out, count);
+            }
+
+            // Neighbour above walks off its edge and falls down this column.
+            for (int drop = 1; drop <= maxFallDistance; drop++) {
+                if (!isPassable(x, y + 1 + drop, z)) break;
+                count = addStanding(nx, y + drop, nz, out, count);
+            }
+        }
+
+        // Swimming straight up or down.
+        if (kinds[cell] == WATER) {
+            if (kindAt(x, y - 1, z) == WATER) count = addStanding(x, y - 1, z, out, count);
+            if (kindAt(x, y + 1, z) == WATER) count = addStanding(x, y + 1, z, out, count);
+        }
+        return count;
+    }
+
+    private int addStanding(int x, int y, int z, int[] out, int count) {
+        int index = indexOf(x, y, z);
+        if (index < 0 || !isStanding(x, y, z)) return count;
+        out[count] = index;
+        return count + 1;
+    }
+
+    /**
+     * Compresses the volume into cell kinds, column by column.
+     */
+    private static void fillKinds(RegionView snapshot, byte[] kinds, long deadline) {
+        int minX = snapshot.getMinX(), minY = snapshot.getMinY(), minZ = snapshot.getMinZ();
+        int sizeX = snapshot.getMaxX() - minX + 1;
+        int sizeY = snapshot.getMaxY() - minY + 1;
+        int sizeZ = snapshot.getMaxZ() - minZ + 1;
+
+        int i = 0;
+        for (int x = 0; x < sizeX; x++) {
+            CheckBudget.checkDeadline(deadline);
+            for (int z = 0; z < sizeZ; z++) {
+                boolean loaded = snapshot.isLoaded(minX + x, minZ + z);
+                for (int y = 0; y < sizeY; y++) {
+                    kinds[i++] = loaded ? kindOf(snapshot.getBlockState(minX + x, minY + y, minZ + z)) : BLOCKED;
+                }
+            }
+        }
+    }
+
+    /**
+     * A mob can stand here: feet and head fit, and something holds it up.
+     */
+    private boolean isStanding(int x, int y, int z) {
+        byte feet = kindAt(x, y, z);
+        if (feet != OPEN && feet != WATER && feet != LOW) return false;
+        if (!isPassable(x, y + 1, z)) return false;
+        if (feet == LOW || feet == WATER) return true;
+        byte below = kindAt(x, y - 1, z);
+        return below == FLOOR || below == LOW || below == WATER;
+    }
+
+    private boolean isPassable(int x, int y, int z) {
+        byte kind = kindAt(x, y, z);
+        return kind == OPEN || kind == WATER;
+    }
+
+    private byte kindAt(int x, int y, int z) {
+        int index = indexOf(x, y, z);
+        return index < 0 ? BLOCKED : kinds[index];
+    }
+
+    private int indexOf(int x, int y, int z) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) return -1;
+        return (x * sizeZ + z) * sizeY + y;
+    }
+
+    /**
+     * True for blocks no mob moves through: closed doors and gates, lava, fences and
+     * anything with a collision top above half a block. Used by {@link EnclosureCheck}.
+     */
+    static boolean isWall(BlockState state) {
+        byte kind = kindOf(state);
+        return kind == BLOCKED || kind == FLOOR;
+    }
+
+    private static byte kindOf(BlockState state) {
+        Byte kind = KIND_CACHE.get(state);
+        if (kind == null) {
+            kind = classify(state);
+            KIND_CACHE.put(state, kind);
+        }
+        return kind;
+    }
+
+    private static byte classify(BlockState state) {
+        if (state.isAir()) return OPEN;
+        if (state.getFluidState().is(FluidTags.LAVA)) return BLOCKED;
+
+        // Same door rule as pathContainsBlockingDoor: open doors pass, closed ones never do.
+        if (state.getBlock() instanceof DoorBlock) {
+            return state.getValue(DoorBlock.OPEN) ? OPEN : BLOCKED;
+        }
+        if (state.getBlock() instanceof FenceGateBlock) {
+            return state.getValue(FenceGateBlock.OPEN) ? OPEN : BLOCKED;
+        }
+        // Blocks the pathfinder refuses to walk into.
+        if (state.is(Blocks.CACTUS) || state.is(Blocks.SWEET_BERRY_BUSH) || state.is(Blocks.WITHER_ROSE)
+                || state.is(Blocks.POWDER_SNOW)) {
+            return BLOCKED;
+        }
+
+        VoxelShape shape = state.getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO);
+        if (shape.isEmpty()) {
+            return state.getFluidState().is(FluidTags.WATER) ? WATER : OPEN;
+        }
+
+        double top = shape.max(Direction.Axis.Y);
+        if (top > 1.0) return BLOCKED;   // fences and walls
+        if (top <= 0.5) return LOW;      // slabs, carpets, snow — stepped onto
+        return FLOOR;
+    }
+
+    private static final class Scratch {
+        private byte[] kinds = new byte[0];
+        private int[] next = new int[0];
+        private int[] queue = new int[0];
+        private int[] predecessors = new int[0];
+        private long[] masks = new long[0];
+        private boolean[] queued = new boolean[0];
+
+        private void ensureCapacity(int volume, int maxFallDistance) {
+            if (kinds.length < volume) {
+                kinds = new byte[volume];
+                next = new int[volume];
+                queue = new int[volume];
+            }
+            // Per direction: same level, step up, every drop; plus swimming up and down.
+            int maxPredecessors = HORIZONTAL.length * (2 + maxFallDistance) + 2;
+            if (predecessors.length < maxPredecessors) {
+                predecessors = new int[maxPredecessors];
+            }
+        }
+
+        private void ensureMaskCapacity(int volume) {
+            if (masks.length < volume) {
+                masks = new long[volume];
+                queued = new boolean[volume];
+            }
+        }
+    }
+}
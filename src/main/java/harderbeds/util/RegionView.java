@@ -0,0 +1,34 @@
+package harderbeds.util;
+
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Read-only block and light access to a bounded box of the world.
+ * <p>
+ * The snapshot-based parts of the bed check ({@link SpawnCandidateScanner},
+ * {@link ReachabilityField}) only see the world through this view, so they can run on
+ * worker threads against a {@link BedRegionSnapshot} or against an in-memory stand-in.
+ */
+public interface RegionView {
+
+    int getMinX();
+    int getMinY();
+    int getMinZ();
+    int getMaxX();
+    int getMaxY();
+    int getMaxZ();
+
+    /**
+     * Whether the chunk holding this column has block data. Unloaded columns read as air.
+     */
+    boolean isLoaded(int x, int z);
+
+    BlockState getBlockState(int x, int y, int z);
+
+    int getBlockLight(int x, int y, int z);
+
+    /**
+     * Sky light, or 0 if the view was captured without it.
+     */
+    int getSkyLight(int x, int y, int z);
+}
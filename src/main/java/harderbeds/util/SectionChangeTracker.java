@@ -0,0 +1,64 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Counts block and light changes per chunk section so cached or in-flight bed
+ * checks can tell whether the blocks they looked at are still the same.
+ * <p>
+ * Versions start at 0 for every section and only ever grow. A result taken at a set of
+ * versions is stale as soon as any of those sections reports a different version.
+ */
+public final class SectionChangeTracker {
+
+    private static final Map<ServerLevel, Long2IntOpenHashMap> BLOCK_VERSIONS = new WeakHashMap<>();
+    private static final Map<ServerLevel, Long2IntOpenHashMap> LIGHT_VERSIONS = new WeakHashMap<>();
+
+    private SectionChangeTracker() {
+    }
+
+    /**
+     * Called from {@link harderbeds.mixin.LevelMixin} after every successful block change on the server.
+     */
+    public static void onBlockChanged(ServerLevel world, BlockPos pos) {
+        long sectionKey = SectionPos.asLong(
+                SectionPos.blockToSectionCoord(pos.getX()),
+                SectionPos.blockToSectionCoord(pos.getY()),
+                SectionPos.blockToSectionCoord(pos.getZ()));
+        synchronized (BLOCK_VERSIONS) {
+            BLOCK_VERSIONS.computeIfAbsent(world, level -> new Long2IntOpenHashMap()).addTo(sectionKey, 1);
+        }
+        BedSafetyStore.onBlockChanged(world, pos);
+    }
+
+    /**
+     * Called from {@link harderbeds.mixin.ServerChunkCacheMixin} when the light engine changes a
+     * block light section, or a sky light section where the spawn rules read sky light. May run
+     * on the light thread.
+     */
+    public static void onLightChanged(ServerLevel world, long sectionKey) {
+        synchronized (LIGHT_VERSIONS) {
+            LIGHT_VERSIONS.computeIfAbsent(world, level -> new Long2IntOpenHashMap()).addTo(sectionKey, 1);
+        }
+    }
+
+    public static int getBlockVersion(ServerLevel world, int sectionX, int sectionY, int sectionZ) {
+        synchronized (BLOCK_VERSIONS) {
+            Long2IntOpenHashMap versions = BLOCK_VERSIONS.get(world);
+            return versions == null ? 0 : versions.get(SectionPos.asLong(sectionX, sectionY, sectionZ));
+        }
+    }
+
+    public static int getLightVersion(ServerLevel world, int sectionX, int sectionY, int sectionZ) {
+        synchronized (LIGHT_VERSIONS) {
+            Long2IntOpenHashMap versions = LIGHT_VERSIONS.get(world);
+            return versions == null ? 0 : versions.get(SectionPos.asLong(sectionX, sectionY, sectionZ));
+        }
+    }
+}
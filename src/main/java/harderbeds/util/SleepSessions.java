@@ -0,0 +1,83 @@
+package harderbeds.util;
+
+import harderbeds.Harderbeds;
+import net.fabricmc.fabric.api.attachment.v1.AttachmentRegistry;
+import net.fabricmc.fabric.api.attachment.v1.AttachmentType;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.effect.MobEffects;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+
+/**
+ * One night's sleep per player, from lying down to waking up.
+ * <p>
+ * Whether the bed is in a village is looked up once when the player lies down and kept
+ * on the player as a transient attachment. Waking up only reads it back. Everyone wakes
+ * in the same tick when the night is skipped, so the village penalties are queued and
+ * handed out a few players per tick instead. Server thread only.
+ */
+public final class SleepSessions {
+
+    private static final int PENALTY_DURATION_TICKS = 5 * 60 * 20;
+    private static final int PENALTIES_PER_TICK = 2;
+
+    private static final AttachmentType<Session> SESSION =
+            AttachmentRegistry.create(Identifier.fromNamespaceAndPath(Harderbeds.MOD_ID, "sleep_session"));
+    private static final ArrayDeque<UUID> PENALTIES = new ArrayDeque<>();
+
+    private SleepSessions() {
+    }
+
+    /**
+     * Starts the session of a player who just lay down.
+     *
+     * @return whether the bed is in a village
+     */
+    public static boolean onLieDown(ServerLevel world, Player player, BlockPos clickedPos) {
+        BlockPos bedPos = player.getSleepingPos().orElse(clickedPos);
+        boolean inVillage = !BedSafetyChecker.isBedAllowed(world, bedPos);
+        player.setAttached(SESSION, new Session(bedPos.asLong(), inVillage));
+        return inVillage;
+    }
+
+    /**
+     * Ends the session. A village bed slept in until morning earns the penalty.
+     */
+    public static void onWakeUp(ServerPlayer player, boolean morning) {
+        Session session = player.removeAttached(SESSION);
+        if (session != null && session.inVillage && morning) {
+            PENALTIES.add(player.getUUID());
+        }
+    }
+
+    /**
+     * Hands out the queued penalties. Called once per server tick.
+     */
+    public static void tick(MinecraftServer server) {
+        for (int i = 0; i < PENALTIES_PER_TICK && !PENALTIES.isEmpty(); i++) {
+            ServerPlayer player = server.getPlayerList().getPlayer(PENALTIES.poll());
+            if (player == null) continue;
+
+            player.addEffect(new MobEffectInstance(MobEffects.HUNGER, PENALTY_DURATION_TICKS, 0));
+            player.addEffect(new MobEffectInstance(MobEffects.SLOWNESS, PENALTY_DURATION_TICKS, 0));
+            player.addEffect(new MobEffectInstance(MobEffects.WEAKNESS, PENALTY_DURATION_TICKS, 0));
+            player.addEffect(new MobEffectInstance(MobEffects.MINING_FATIGUE, PENALTY_DURATION_TICKS, 0));
+            player.sendSystemMessage(Component.translatable("That was an uncomfortable night..."));
+        }
+    }
+
+    public static void clear() {
+        PENALTIES.clear();
+    }
+
+    private record Session(long bedPos, boolean inVillage) {
+    }
+}
@@ -0,0 +1,215 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.lighting.LayerLightEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-chunk-section index of potential spawn floors: blocks the {@link SpawnRules} allow,
+ * with two dark enough air blocks above.
+ * <p>
+ * A section is indexed the first time a bed check needs it. The entry remembers the
+ * {@link SectionChangeTracker} versions of its own section and the one above (the air and
+ * light above the top floors live there) and is rebuilt lazily once any of them moves.
+ * A bed check then only walks the real candidates in its box instead of every cell.
+ * Server thread only.
+ */
+public final class SpawnCandidateIndex {
+
+    private static final int MAX_SECTIONS_PER_LEVEL = 4096;
+
+    private static final Map<ServerLevel, Map<Long, SectionEntry>> INDEX = new WeakHashMap<>();
+    private static final LongArrayList CANDIDATES = new LongArrayList();
+
+    private SpawnCandidateIndex() {
+    }
+
+    /**
+     * Collects the candidate floors around the bed as packed {@link BlockPos#asLong} values.
+     * Keeps the visiting order of the original scan: Y layers top-down, columns in shuffled order.
+     * The returned list is reused — it is only valid until the next call.
+     */
+    public static LongArrayList collect(ServerLevel world, BlockPos bedPos, RandomSource random, BedCheckSettings settings) {
+        int horizontalRadius = settings.horizontalRadius();
+        int verticalRadius   = settings.verticalRadius();
+        int exclusionRadius  = settings.exclusionRadius();
+
+        int minX = bedPos.getX() - horizontalRadius, maxX = bedPos.getX() + horizontalRadius;
+        int minY = bedPos.getY() - verticalRadius,   maxY = bedPos.getY() + verticalRadius;
+        int minZ = bedPos.getZ() - horizontalRadius, maxZ = bedPos.getZ() + horizontalRadius;
+
+        Map<Long, SectionEntry> sections = INDEX.computeIfAbsent(world, level -> newSectionMap());
+        LongArrayList candidates = CANDIDATES;
+        candidates.clear();
+
+        for (int sx = SectionPos.blockToSectionCoord(minX); sx <= SectionPos.blockToSectionCoord(maxX); sx++) {
+            for (int sz = SectionPos.blockToSectionCoord(minZ); sz <= SectionPos.blockToSectionCoord(maxZ); sz++) {
+                LevelChunk chunk = world.getChunkSource().getChunkNow(sx, sz);
+                if (chunk == null) continue;
+
+                for (int sy = SectionPos.blockToSectionCoord(minY); sy <= SectionPos.blockToSectionCoord(maxY); sy++) {
+                    SectionEntry entry = getOrBuild(world, chunk, sections, sx, sy, sz, settings.spawnRules());
+                    entry.collect(sx, sy, sz, minX, minY, minZ, maxX, maxY, maxZ, bedPos, exclusionRadius, candidates);
+                }
+            }
+        }
+
+        SpawnCandidateScanner.sortInScanOrder(candidates, bedPos, horizontalRadius, random);
+        return candidates;
+    }
+
+    public static void clear() {
+        INDEX.clear();
+    }
+
+    private static SectionEntry getOrBuild(ServerLevel world, LevelChunk chunk, Map<Long, SectionEntry> sections,
+                                           int sx, int sy, int sz, SpawnRules rules) {
+        long key = SectionPos.asLong(sx, sy, sz);
+        SectionEntry entry = sections.get(key);
+        if (entry == null || !entry.rules.equals(rules) || !entry.isCurrent(world, sx, sy, sz)) {
+            entry = SectionEntry.build(world, chunk, sx, sy, sz, rules);
+            sections.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static Map<Long, SectionEntry> newSectionMap() {
+        return new LinkedHashMap<>(256, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SectionEntry> eldest) {
+                return size() > MAX_SECTIONS_PER_LEVEL;
+            }
+        };
+    }
+
+    private static final class SectionEntry {
+        /** One bit per block in the section, index {@code (y << 8) | (z << 4) | x}. */
+        private final long[] floors = new long[64];
+        private int blockVersion, blockVersionAbove, lightVersion, lightVersionAbove;
+        private SpawnRules rules;
+
+        /**
+         * Indexes one section. Both chunk sections involved are resolved once and every
+         * column is walked top-down with a sliding "floor, air, air" window, so the build
+         * never goes back through {@code Level.getBlockState}.
+         */
+        private static SectionEntry build(ServerLevel world, LevelChunk chunk, int sx, int sy, int sz, SpawnRules rules) {
+            SectionEntry entry = new SectionEntry();
+            entry.rules = rules;
+            entry.blockVersion      = SectionChangeTracker.getBlockVersion(world, sx, sy, sz);
+            entry.blockVersionAbove = SectionChangeTracker.getBlockVersion(world, sx, sy + 1, sz);
+            entry.lightVersion      = SectionChangeTracker.getLightVersion(world, sx, sy, sz);
+            entry.lightVersionAbove = SectionChangeTracker.getLightVersion(world, sx, sy + 1, sz);
+
+            BedCheckMetrics.add(BedCheckMetrics.Counter.CELLS_SCANNED, 16 * 16 * 16);
+            if (BedCheckTrace.recording) BedCheckTrace.record(BedCheckTrace.Event.CELLS, 16 * 16 * 16, 0);
+
+            LevelChunkSection section = sectionAt(chunk, sy);
+            if (section == null || section.hasOnlyAir()) return entry;
+            LevelChunkSection sectionAbove = sectionAt(chunk, sy + 1);
+
+            LayerLightEventListener blockLight = world.getLightEngine().getLayerListener(LightLayer.BLOCK);
+            DataLayer light      = blockLight.getDataLayerData(SectionPos.of(sx, sy, sz));
+            DataLayer lightAbove = blockLight.getDataLayerData(SectionPos.of(sx, sy + 1, sz));
+
+            int baseX = SectionPos.sectionToBlockCoord(sx);
+            int baseY = SectionPos.sectionToBlockCoord(sy);
+            int baseZ = SectionPos.sectionToBlockCoord(sz);
+            BlockPos.MutableBlockPos testPos = new BlockPos.MutableBlockPos();
+
+            for (int lz = 0; lz < 16; lz++) {
+                for (int lx = 0; lx < 16; lx++) {
+                    // Window starts with the two bottom layers of the section above.
+                    boolean airTwoAbove = isAir(sectionAbove, lx, 1, lz);
+                    boolean airAbove    = isAir(sectionAbove, lx, 0, lz);
+
+                    for (int ly = 15; ly >= 0; ly--) {
+                        BlockState floor = section.getBlockState(lx, ly, lz);
+                        boolean floorIsAir = floor.isAir();
+
+                        if (!floorIsAir && airAbove && airTwoAbove
+                                && rules.isSpawnFloor(floor)
+                                && rules.allowsLight(lightAbove(light, lightAbove, lx, ly, lz),
+                                        skyLightAbove(world, rules, testPos.set(baseX + lx, baseY + ly + 1, baseZ + lz)))) {
+                            int bit = (ly << 8) | (lz << 4) | lx;
+                            entry.floors[bit >>> 6] |= 1L << bit;
+                        }
+
+                        airTwoAbove = airAbove;
+                        airAbove = floorIsAir;
+                    }
+                }
+            }
+            return entry;
+        }
+
+        private static LevelChunkSection sectionAt(LevelChunk chunk, int sectionY) {
+            int index = chunk.getSectionIndexFromSectionY(sectionY);
+            if (index < 0 || index >= chunk.getSectionsCount()) return null;
+            return chunk.getSection(index);
+        }
+
+        private static boolean isAir(LevelChunkSection section, int lx, int ly, int lz) {
+            return section == null || section.getBlockState(lx, ly, lz).isAir();
+        }
+
+        /**
+         * Sky light of the air block at {@code pos}, read only if the rules use it.
+         */
+        private static int skyLightAbove(ServerLevel world, SpawnRules rules, BlockPos pos) {
+            return rules.checksSkyLight() ? world.getBrightness(LightLayer.SKY, pos) : 0;
+        }
+
+        /**
+         * Block light of the air block right above local floor {@code ly}.
+         */
+        private static int lightAbove(DataLayer light, DataLayer lightAbove, int lx, int ly, int lz) {
+            if (ly < 15) return light == null ? 0 : light.get(lx, ly + 1, lz);
+            return lightAbove == null ? 0 : lightAbove.get(lx, 0, lz);
+        }
+
+        private boolean isCurrent(ServerLevel world, int sx, int sy, int sz) {
+            return blockVersion == SectionChangeTracker.getBlockVersion(world, sx, sy, sz)
+                    && blockVersionAbove == SectionChangeTracker.getBlockVersion(world, sx, sy + 1, sz)
+                    && lightVersion == SectionChangeTracker.getLightVersion(world, sx, sy, sz)
+                    && lightVersionAbove == SectionChangeTracker.getLightVersion(world, sx, sy + 1, sz);
+        }
+
+        private void collect(int sx, int sy, int sz, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                             BlockPos bedPos, int exclusionRadius, LongArrayList out) {
+            int baseX = SectionPos.sectionToBlockCoord(sx);
+            int baseY = SectionPos.sectionToBlockCoord(sy);
+            int baseZ = SectionPos.sectionToBlockCoord(sz);
+
+            for (int word = 0; word < floors.length; word++) {
+                long bits = floors[word];
+                while (bits != 0) {
+                    int bit = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    int x = baseX + (bit & 15);
+                    int z = baseZ + ((bit >>> 4) & 15);
+                    int y = baseY + (bit >>> 8);
+                    if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) continue;
+                    if (Math.abs(y - bedPos.getY()) <= exclusionRadius) continue;
+                    if (Math.abs(x - bedPos.getX()) <= exclusionRadius &&
+                            Math.abs(z - bedPos.getZ()) <= exclusionRadius) continue;
+
+                    out.add(BlockPos.asLong(x, y, z));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Groups spawn candidates into connected dark regions and keeps one candidate per region.
+ * <p>
+ * Two floors belong to the same region when they are orthogonal neighbours a mob can walk
+ * between without leaving dark floor: level with each other, or one block apart with room
+ * to jump — two free blocks above the higher floor in the lower floor's column. Diagonal
+ * neighbours are never joined, since neither vanilla pathing nor {@link ReachabilityField}
+ * cuts corners between solid blocks. If one member of a region can reach the bed, so can
+ * the others, so a cave with hundreds of dark floor blocks costs one pathfind instead of
+ * hundreds. The member closest to the bed represents its region, and regions are tried
+ * nearest first. Only reads the given view, so it can run on a worker thread.
+ */
+public final class SpawnCandidateRegions {
+
+    private SpawnCandidateRegions() {
+    }
+
+    /**
+     * Returns one packed candidate per connected region, nearest region first.
+     */
+    public static LongArrayList representatives(RegionView view, LongArrayList candidates, BlockPos bedPos) {
+        int count = candidates.size();
+        if (count <= 1) return new LongArrayList(candidates);
+
+        Long2IntOpenHashMap indexOf = new Long2IntOpenHashMap(count);
+        indexOf.defaultReturnValue(-1);
+        for (int i = 0; i < count; i++) {
+            indexOf.put(candidates.getLong(i), i);
+        }
+
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) parent[i] = i;
+
+        for (int i = 0; i < count; i++) {
+            long pos = candidates.getLong(i);
+            int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+
+            for (Direction direction : Direction.Plane.HORIZONTAL) {
+                int nx = x + direction.getStepX(), nz = z + direction.getStepZ();
+                // Level neighbours link both ways, so one side is enough.
+                if (direction == Direction.EAST || direction == Direction.SOUTH) {
+                    int level = indexOf.get(BlockPos.asLong(nx, y, nz));
+                    if (level >= 0) union(parent, i, level);
+                }
+                // A step up from here needs headroom above this floor for the jump.
+                int higher = indexOf.get(BlockPos.asLong(nx, y + 1, nz));
+                if (higher >= 0 && view.getBlockState(x, y + 3, z).isAir()) union(parent, i, higher);
+            }
+        }
+
+        // Nearest member of each region; ties keep the earlier (shuffled) candidate.
+        int[] best = new int[count];
+        long[] bestDistance = new long[count];
+        Arrays.fill(best, -1);
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            long distance = distanceSqr(candidates.getLong(i), bedPos);
+            if (best[root] < 0 || distance < bestDistance[root]) {
+                best[root] = i;
+                bestDistance[root] = distance;
+            }
+        }
+
+        LongArrayList representatives = new LongArrayList();
+        for (int root = 0; root < count; root++) {
+            if (best[root] >= 0) representatives.add(candidates.getLong(best[root]));
+        }
+        LongArrays.mergeSort(representatives.elements(), 0, representatives.size(),
+                (a, b) -> Long.compare(distanceSqr(a, bedPos), distanceSqr(b, bedPos)));
+        return representatives;
+    }
+
+    private static long distanceSqr(long pos, BlockPos bedPos) {
+        long dx = BlockPos.getX(pos) - bedPos.getX();
+        long dy = BlockPos.getY(pos) - bedPos.getY();
+        long dz = BlockPos.getZ(pos) - bedPos.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+}
@@ -0,0 +1,227 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Finds potential spawn floors around a bed inside a {@link RegionView}, usually a {@link BedRegionSnapshot}.
+ * <p>
+ * Applies the same rules as {@link SpawnCandidateIndex}: a floor the {@link SpawnRules} allow
+ * with two dark enough air blocks above, the inner exclusion cube skipped. Each column is walked once from the top
+ * with a sliding "floor, air, air" window, and the candidates are then put into the
+ * original visiting order — Y layers top-down, (x, z) columns shuffled. Touches no live
+ * world state, so it can run on a worker thread.
+ */
+public final class SpawnCandidateScanner {
+
+    private static final ThreadLocal<OrderScratch> ORDER_SCRATCH = ThreadLocal.withInitial(OrderScratch::new);
+
+    private SpawnCandidateScanner() {
+    }
+
+    /**
+     * Returns the candidate floor blocks as packed {@link BlockPos#asLong} values, in visiting order.
+     */
+    public static LongArrayList scan(RegionView snapshot, BlockPos bedPos, long shuffleSeed, BedCheckSettings settings) {
+        int horizontalRadius = settings.horizontalRadius();
+        int verticalRadius   = settings.verticalRadius();
+        int exclusionRadius  = settings.exclusionRadius();
+
+        int topY    = bedPos.getY() + verticalRadius;
+        int bottomY = bedPos.getY() - verticalRadius;
+
+        long start = System.nanoTime();
+        LongArrayList candidates = new LongArrayList();
+        long cellsScanned = 0;
+
+        for (int x = bedPos.getX() - horizontalRadius; x <= bedPos.getX() + horizontalRadius; x++) {
+            for (int z = bedPos.getZ() - horizontalRadius; z <= bedPos.getZ() + horizontalRadius; z++) {
+                if (Math.abs(x - bedPos.getX()) <= exclusionRadius &&
+                        Math.abs(z - bedPos.getZ()) <= exclusionRadius) {
+                    continue;
+                }
+                cellsScanned += scanColumn(snapshot, x, z, topY, bottomY, bedPos, settings, candidates);
+            }
+        }
+
+        sortInScanOrder(candidates, bedPos, horizontalRadius, RandomSource.create(shuffleSeed));
+
+        BedCheckMetrics.add(BedCheckMetrics.Counter.CELLS_SCANNED, cellsScanned);
+        BedCheckMetrics.add(BedCheckMetrics.Counter.CANDIDATES_FOUND, candidates.size());
+        BedCheckMetrics.record(BedCheckMetrics.Phase.CANDIDATE_SCAN, start);
+        return candidates;
+    }
+
+    /**
+     * Appends the candidates of one column, top-down, for floors from {@code topY} down to {@code bottomY}.
+     *
+     * @return the number of cells read
+     */
+    static int scanColumn(RegionView snapshot, int x, int z, int topY, int bottomY, BlockPos bedPos,
+                          BedCheckSettings settings, LongArrayList candidates) {
+        if (!snapshot.isLoaded(x, z) || topY < bottomY) return 0;
+        SpawnRules rules = settings.spawnRules();
+        boolean skyLight = rules.checksSkyLight();
+
+        // Sliding window down the column: airAbove is y + 1, airTwoAbove is y + 2.
+        boolean airTwoAbove = snapshot.getBlockState(x, topY + 2, z).isAir();
+        boolean airAbove    = snapshot.getBlockState(x, topY + 1, z).isAir();
+
+        for (int y = topY; y >= bottomY; y--) {
+            BlockState floor = snapshot.getBlockState(x, y, z);
+            boolean floorIsAir = floor.isAir();
+
+            if (!floorIsAir && airAbove && airTwoAbove
+                    && Math.abs(y - bedPos.getY()) > settings.exclusionRadius()
+                    && rules.isSpawnFloor(floor)
+                    && rules.allowsLight(snapshot.getBlockLight(x, y + 1, z), skyLight ? snapshot.getSkyLight(x, y + 1, z) : 0)) {
+                candidates.add(BlockPos.asLong(x, y, z));
+            }
+
+            airTwoAbove = airAbove;
+            airAbove = floorIsAir;
+        }
+        return topY - bottomY + 3;
+    }
+
+    /**
+     * Scans the union of several beds' search boxes once, for a batched check.
+     * <p>
+     * Each column is walked once over the combined height, and every candidate found is
+     * tagged with a bit mask of the beds whose own {@link #scan} would have returned it:
+     * inside that bed's box and outside its exclusion cube. Candidates no bed claims are
+     * dropped. The order is plain column order, there is no shuffle.
+     *
+     * @param masks receives one mask per returned candidate, bed {@code i} as {@code 1L << i}
+     */
+    public static LongArrayList scanShared(RegionView snapshot, BlockPos[] bedPositions, BedCheckSettings settings,
+                                           LongArrayList masks) {
+        int horizontalRadius = settings.horizontalRadius();
+        int verticalRadius   = settings.verticalRadius();
+        int exclusionRadius  = settings.exclusionRadius();
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, bottomY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE, topY = Integer.MIN_VALUE;
+        for (BlockPos bedPos : bedPositions) {
+            minX = Math.min(minX, bedPos.getX() - horizontalRadius);
+            maxX = Math.max(maxX, bedPos.getX() + horizontalRadius);
+            minZ = Math.min(minZ, bedPos.getZ() - horizontalRadius);
+            maxZ = Math.max(maxZ, bedPos.getZ() + horizontalRadius);
+            bottomY = Math.min(bottomY, bedPos.getY() - verticalRadius);
+            topY = Math.max(topY, bedPos.getY() + verticalRadius);
+        }
+
+        long start = System.nanoTime();
+        LongArrayList candidates = new LongArrayList();
+        SpawnRules rules = settings.spawnRules();
+        boolean skyLight = rules.checksSkyLight();
+        long cellsScanned = 0;
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                // Beds whose box holds this column, minus those whose exclusion cube does.
+                long columnMask = 0;
+                for (int bed = 0; bed < bedPositions.length; bed++) {
+                    int dx = Math.abs(x - bedPositions[bed].getX());
+                    int dz = Math.abs(z - bedPositions[bed].getZ());
+                    if (dx <= horizontalRadius && dz <= horizontalRadius
+                            && (dx > exclusionRadius || dz > exclusionRadius)) {
+                        columnMask |= 1L << bed;
+                    }
+                }
+                if (columnMask == 0 || !snapshot.isLoaded(x, z)) continue;
+
+                boolean airTwoAbove = snapshot.getBlockState(x, topY + 2, z).isAir();
+                boolean airAbove    = snapshot.getBlockState(x, topY + 1, z).isAir();
+                cellsScanned += topY - bottomY + 3;
+
+                for (int y = topY; y >= bottomY; y--) {
+                    BlockState floor = snapshot.getBlockState(x, y, z);
+                    boolean floorIsAir = floor.isAir();
+
+                    if (!floorIsAir && airAbove && airTwoAbove
+                            && rules.isSpawnFloor(floor)
+                            && rules.allowsLight(snapshot.getBlockLight(x, y + 1, z), skyLight ? snapshot.getSkyLight(x, y + 1, z) : 0)) {
+                        long mask = 0;
+                        for (int bed = 0; bed < bedPositions.length; bed++) {
+                            if ((columnMask & (1L << bed)) == 0) continue;
+                            int dy = Math.abs(y - bedPositions[bed].getY());
+                            if (dy <= verticalRadius && dy > exclusionRadius) mask |= 1L << bed;
+                        }
+                        if (mask != 0) {
+                            candidates.add(BlockPos.asLong(x, y, z));
+                            masks.add(mask);
+                        }
+                    }
+
+                    airTwoAbove = airAbove;
+                    airAbove = floorIsAir;
+                }
+            }
+        }
+
+        BedCheckMetrics.add(BedCheckMetrics.Counter.CELLS_SCANNED, cellsScanned);
+        BedCheckMetrics.add(BedCheckMetrics.Counter.CANDIDATES_FOUND, candidates.size());
+        BedCheckMetrics.record(BedCheckMetrics.Phase.CANDIDATE_SCAN, start);
+        return candidates;
+    }
+
+    /**
+     * Orders packed candidates top-down by Y, then by a shuffled rank of their (x, z) column —
+     * the order the original layer-by-layer scan visited them in.
+     */
+    static void sortInScanOrder(LongArrayList candidates, BlockPos bedPos, int horizontalRadius, RandomSource random) {
+        int horizontalRange = (horizontalRadius * 2) + 1;
+        int totalPairs = horizontalRange * horizontalRange;
+
+        OrderScratch scratch = ORDER_SCRATCH.get();
+        scratch.ensureCapacity(totalPairs);
+        int[] columnRank = scratch.columnRank;
+        rankColumns(scratch.xzPairs, columnRank, horizontalRange, random);
+
+        int originX = bedPos.getX() - horizontalRadius;
+        int originZ = bedPos.getZ() - horizontalRadius;
+        LongArrays.quickSort(candidates.elements(), 0, candidates.size(), (a, b) -> {
+            int byY = Integer.compare(BlockPos.getY(b), BlockPos.getY(a));
+            if (byY != 0) return byY;
+            int rankA = columnRank[(BlockPos.getX(a) - originX) * horizontalRange + (BlockPos.getZ(a) - originZ)];
+            int rankB = columnRank[(BlockPos.getX(b) - originX) * horizontalRange + (BlockPos.getZ(b) - originZ)];
+            return Integer.compare(rankA, rankB);
+        });
+    }
+
+    /**
+     * Shuffles the (dx, dz) columns of the box and stores each column's position in the
+     * shuffled order at {@code columnRank[dx * horizontalRange + dz]}. {@code xzPairs} keeps
+     * the shuffled pairs, so pair {@code p} is the column of rank {@code p}.
+     */
+    static void rankColumns(int[] xzPairs, int[] columnRank, int horizontalRange, RandomSource random) {
+        int totalPairs = horizontalRange * horizontalRange;
+        int idx = 0;
+        for (int dx = 0; dx < horizontalRange; dx++) {
+            for (int dz = 0; dz < horizontalRange; dz++) {
+                xzPairs[idx++] = dx;
+                xzPairs[idx++] = dz;
+            }
+        }
+        BedSafetyChecker.shufflePairs(xzPairs, totalPairs, random);
+        for (int p = 0; p < totalPairs; p++) {
+            columnRank[xzPairs[p * 2] * horizontalRange + xzPairs[p * 2 + 1]] = p;
+        }
+    }
+
+    private static final class OrderScratch {
+        private int[] xzPairs = new int[0];
+        private int[] columnRank = new int[0];
+
+        private void ensureCapacity(int totalPairs) {
+            if (columnRank.length < totalPairs) {
+                xzPairs = new int[totalPairs * 2];
+                columnRank = new int[totalPairs];
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.dimension.DimensionType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which floors and light levels can spawn a monster in one dimension, shared by every
+ * candidate filter.
+ * <p>
+ * With the vanilla rules on, a floor also has to pass {@link BlockState#isValidSpawn} for a
+ * zombie — no glass, bedrock, barriers, magma or bright blocks — and the air above it must be
+ * dark enough for {@code Monster.isDarkEnoughToSpawn}. Block light at most the dimension's
+ * {@link DimensionType#monsterSpawnBlockLightLimit} and never above the light test, and sky
+ * light low enough to pass the light test at the darkest point of the night, when the most
+ * surface can spawn. The sky test never excludes anything in the overworld, so
+ * {@link #checksSkyLight} is false there and no sky light is read.
+ * <p>
+ * Immutable and a value, so it is part of {@link BedCheckSettings} and of every cache key.
+ *
+ * @param maxBlockLight the brightest block light a monster spawns in
+ * @param maxSkyLight   the brightest sky light a monster spawns in, 15 for no limit
+ * @param vanillaFloors whether floors are filtered with {@link BlockState#isValidSpawn}
+ */
+public record SpawnRules(int maxBlockLight, int maxSkyLight, boolean vanillaFloors) {
+
+    /** The filter before it followed the spawn rules: block light below 8 on any solid floor. */
+    public static final SpawnRules LEGACY = new SpawnRules(7, 15, false);
+
+    /** How much the sky darkens at midnight. */
+    private static final int NIGHT_SKY_DARKEN = 11;
+
+    private static final Map<BlockState, Boolean> FLOOR_CACHE = new ConcurrentHashMap<>();
+
+    static SpawnRules forLevel(ServerLevel world, int minLightLevel, boolean vanilla) {
+        int legacyMaxBlockLight = minLightLevel - 1;
+        if (!vanilla) return new SpawnRules(legacyMaxBlockLight, 15, false);
+
+        DimensionType type = world.dimensionType();
+        int lightTestMax = type.monsterSpawnLightTest().getMaxValue();
+        int maxBlockLight = Math.min(legacyMaxBlockLight, Math.min(type.monsterSpawnBlockLightLimit(), lightTestMax));
+        return new SpawnRules(maxBlockLight, maxSkyLight(type), true);
+    }
+
+    /**
+     * Whether the rules of this level read sky light under the current settings, without
+     * resolving them. The light engine may call this on its own thread.
+     */
+    public static boolean levelChecksSkyLight(ServerLevel world) {
+        return ModConfig.getSettings().isVanillaSpawnRulesEnabled() && maxSkyLight(world.dimensionType()) < 15;
+    }
+
+    private static int maxSkyLight(DimensionType type) {
+        return type.hasSkyLight() ? Math.min(15, type.monsterSpawnLightTest().getMaxValue() + NIGHT_SKY_DARKEN) : 15;
+    }
+
+    public boolean checksSkyLight() {
+        return maxSkyLight < 15;
+    }
+
+    /**
+     * Whether a monster could spawn in an air block with these light levels.
+     */
+    public boolean allowsLight(int blockLight, int skyLight) {
+        return blockLight <= maxBlockLight && skyLight <= maxSkyLight;
+    }
+
+    /**
+     * Whether a monster could stand on this block to spawn. Reads no level, so any thread may call it.
+     */
+    public boolean isSpawnFloor(BlockState floor) {
+        if (floor.isAir() || !floor.isRedstoneConductor(EmptyBlockGetter.INSTANCE, BlockPos.ZERO)) return false;
+        return !vanillaFloors || FLOOR_CACHE.computeIfAbsent(floor, SpawnRules::allowsSpawnOn);
+    }
+
+    private static boolean allowsSpawnOn(BlockState floor) {
+        return floor.isValidSpawn(EmptyBlockGetter.INSTANCE, BlockPos.ZERO, EntityType.ZOMBIE);
+    }
+}
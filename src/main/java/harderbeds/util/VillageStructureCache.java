@@ -0,0 +1,99 @@
+package harderbeds.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.minecraft.world.level.levelgen.structure.StructurePiece;
+import net.minecraft.world.level.levelgen.structure.StructureStart;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-dimension, chunk-keyed cache of village piece bounding boxes.
+ * <p>
+ * Structure placement is fixed once a chunk has been generated, so the first query in a
+ * chunk resolves every village start referenced by it and keeps the boxes of their pieces.
+ * Later queries in that chunk are point-in-box tests without registry or structure manager
+ * access. Which structures count as villages is decided by {@link VillageStructureSet}.
+ * Server thread only.
+ */
+public final class VillageStructureCache {
+
+    private static final int MAX_CHUNKS_PER_LEVEL = 8192;
+
+    /** Flattened boxes, six ints each: minX, minY, minZ, maxX, maxY, maxZ. */
+    private static final int[] NO_BOXES = new int[0];
+
+    private static final Map<ServerLevel, Long2ObjectLinkedOpenHashMap<int[]>> CHUNKS = new WeakHashMap<>();
+
+    private VillageStructureCache() {
+    }
+
+    /**
+     * True if the position lies inside a piece of a village structure.
+     */
+    public static boolean isInVillage(ServerLevel world, BlockPos pos) {
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        int[] boxes = boxesFor(world, SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z));
+
+        for (int i = 0; i < boxes.length; i += 6) {
+            if (x >= boxes[i] && y >= boxes[i + 1] && z >= boxes[i + 2]
+                    && x <= boxes[i + 3] && y <= boxes[i + 4] && z <= boxes[i + 5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void clear() {
+        CHUNKS.clear();
+    }
+
+    private static int[] boxesFor(ServerLevel world, int chunkX, int chunkZ) {
+        Long2ObjectLinkedOpenHashMap<int[]> chunks = CHUNKS.computeIfAbsent(world, level -> new Long2ObjectLinkedOpenHashMap<>());
+
+        long chunkKey = ChunkPos.asLong(chunkX, chunkZ);
+        int[] boxes = chunks.getAndMoveToLast(chunkKey);
+        if (boxes == null) {
+            boxes = resolve(world, new ChunkPos(chunkX, chunkZ));
+            chunks.putAndMoveToLast(chunkKey, boxes);
+            if (chunks.size() > MAX_CHUNKS_PER_LEVEL) {
+                chunks.removeFirst();
+            }
+        }
+        return boxes;
+    }
+
+    private static int[] resolve(ServerLevel world, ChunkPos chunkPos) {
+        int count = 0;
+        int[] boxes = NO_BOXES;
+        for (StructureStart start : world.structureManager().startsForStructure(chunkPos, VillageStructureSet::contains)) {
+            if (!start.isValid()) continue;
+
+            for (StructurePiece piece : start.getPieces()) {
+                if (count + 6 > boxes.length) {
+                    int[] grown = new int[Math.max(24, boxes.length * 2)];
+                    System.arraycopy(boxes, 0, grown, 0, count);
+                    boxes = grown;
+                }
+                BoundingBox box = piece.getBoundingBox();
+                boxes[count++] = box.minX();
+                boxes[count++] = box.minY();
+                boxes[count++] = box.minZ();
+                boxes[count++] = box.maxX();
+                boxes[count++] = box.maxY();
+                boxes[count++] = box.maxZ();
+            }
+        }
+
+        if (count == 0) return NO_BOXES;
+        if (count == boxes.length) return boxes;
+        int[] trimmed = new int[count];
+        System.arraycopy(boxes, 0, trimmed, 0, count);
+        return trimmed;
+    }
+}
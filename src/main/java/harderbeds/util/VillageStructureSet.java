@@ -0,0 +1,84 @@
+package harderbeds.util;
+
+import harderbeds.config.ModConfig;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.tags.StructureTags;
+import net.minecraft.world.level.levelgen.structure.Structure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The structures that count as villages, resolved once into an identity set.
+ * <p>
+ * Built from the {@code #minecraft:village} structure tag plus the extra structure IDs from
+ * the config, so modded villages are covered either by tagging them or by listing them.
+ * Rebuilt on server start and after every data pack reload, when the registry contents
+ * and tags may have changed.
+ */
+public final class VillageStructureSet {
+
+    private static volatile Set<Structure> villages = Set.of();
+    private static volatile long fingerprint = 0;
+
+    private VillageStructureSet() {
+    }
+
+    public static boolean contains(Structure structure) {
+        return villages.contains(structure);
+    }
+
+    /**
+     * Hash over the sorted ids of the resolved structures, stable across restarts. 0 before the first rebuild.
+     */
+    public static long fingerprint() {
+        return fingerprint;
+    }
+
+    public static void rebuild(MinecraftServer server) {
+        Registry<Structure> registry = server.registryAccess().lookupOrThrow(Registries.STRUCTURE);
+        Set<Structure> resolved = new ReferenceOpenHashSet<>();
+
+        for (Holder<Structure> holder : registry.getTagOrEmpty(StructureTags.VILLAGE)) {
+            resolved.add(holder.value());
+        }
+
+        for (String id : ModConfig.getSettings().getExtraVillageStructures()) {
+            Identifier identifier = Identifier.tryParse(id.trim());
+            Structure structure = identifier == null ? null : registry.getValue(identifier);
+            if (structure == null) {
+                ModConfig.LOGGER.warn("Unknown village structure id in config: {}", id);
+                continue;
+            }
+            resolved.add(structure);
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (Structure structure : resolved) {
+            ids.add(String.valueOf(registry.getKey(structure)));
+        }
+        Collections.sort(ids);
+        long hash = 1;
+        for (String id : ids) {
+            hash = hash * 31 + id.hashCode();
+        }
+
+        villages = resolved;
+        fingerprint = hash;
+        // Cached piece boxes were collected with the previous set.
+        VillageStructureCache.clear();
+        ModConfig.LOGGER.info("Resolved {} village structures.", resolved.size());
+    }
+
+    public static void clear() {
+        villages = Set.of();
+        fingerprint = 0;
+    }
+}